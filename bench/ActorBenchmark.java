@@ -0,0 +1,59 @@
+/**
+ * Times the sequential update, the thread pool update and the elevator actors at several fleet sizes, and checks that all three give the same run.
+ *
+ * Usage: java ActorBenchmark [seconds] [fleet size ...]
+ */
+public class ActorBenchmark {
+
+	public static void main(String[] args) {
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 20;
+		int[] fleets = {1000, 10000, 100000};
+		if(args.length > 1) {
+			fleets = new int[args.length - 1];
+			for(int i = 1; i < args.length; i ++) fleets[i - 1] = Integer.parseInt(args[i]);
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+
+		// Let the JIT compile all three before timing any
+		SimulationBase warm = build(1000, 100);
+		time(warm, seconds);
+		warm.setTickThreads(threads);
+		time(warm, 2 * seconds);
+		warm.setActors(true);
+		time(warm, 3 * seconds);
+		warm.setActors(false);
+
+		System.out.println("cars,floors,updates,sequentialUs,threadsUs,actorsUs,identical");
+		for(int cars : fleets) {
+			int floors = Math.max(10, cars / 10);
+			SimulationBase sequential = build(cars, floors), pooled = build(cars, floors), actors = build(cars, floors);
+			pooled.setTickThreads(threads);
+			actors.setActors(true);
+			double sequentialUs = time(sequential, seconds), pooledUs = time(pooled, seconds), actorsUs = time(actors, seconds);
+			pooled.setTickThreads(1);
+			actors.setActors(false);
+			boolean same = sequential.getStateHash() == pooled.getStateHash() && sequential.getStateHash() == actors.getStateHash()
+					&& sequential.getStatistics().getTotalWaitTime() == actors.getStatistics().getTotalWaitTime()
+					&& sequential.getStatistics().getTotalWaitTime() == pooled.getStatistics().getTotalWaitTime();
+			System.out.printf("%d,%d,%d,%.1f,%.1f,%.1f,%b%n", cars, floors, sequential.getTick(), sequentialUs, pooledUs, actorsUs, same);
+			if(!same) System.exit(1);
+		}
+	}
+
+	/**
+	 * Run for the given simulated time, and get the real time per update in microseconds.
+	 */
+	private static double time(SimulationBase s, double seconds) {
+		long start = System.nanoTime();
+		s.runUntil(seconds * 1000);
+		return (System.nanoTime() - start) / 1e3 / s.getTick();
+	}
+
+	private static SimulationBase build(int cars, int floors) {
+		SimulationBase s = new SimulationBase(cars, floors, 1);
+		s.getSpawner().setSpawnInterval(10);
+		s.getSpawner().setSpawnProbability(.5);
+		return s;
+	}
+
+}
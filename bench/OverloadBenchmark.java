@@ -0,0 +1,60 @@
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Runs a building with far more traffic than its elevators can carry, so the floor queues grow all the time,
+ * with queues on the heap and off it, and checks that both give the same run.
+ * Prints heap in use after a collection, and for off-heap queues the direct memory and spill file in use, once per simulated hour.
+ *
+ * Usage: java OverloadBenchmark [hours] [both|heap|off-heap] [direct MB]
+ */
+public class OverloadBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int hours = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		String mode = args.length > 1 ? args[1] : "both";
+		long directBytes = (args.length > 2 ? Long.parseLong(args[2]) : 16) << 20;
+
+		long[] heap = null, offHeap = null;
+		if(!mode.equals("off-heap")) heap = run(hours, null);
+		if(!mode.equals("heap")) {
+			OffHeapQueues store = new OffHeapQueues(new File(System.getProperty("java.io.tmpdir")), directBytes, OffHeapQueues.DEFAULT_BLOCK);
+			try {
+				offHeap = run(hours, store);
+			}
+			finally {
+				store.close();
+			}
+		}
+		if(heap != null && offHeap != null) {
+			boolean same = heap[0] == offHeap[0] && heap[1] == offHeap[1] && heap[2] == offHeap[2];
+			System.out.println(same ? "identical runs" : "RUNS DIFFER");
+			if(!same) System.exit(1);
+		}
+	}
+
+	/**
+	 * @return the final state hash, people delivered and total wait
+	 */
+	private static long[] run(int hours, OffHeapQueues store) {
+		SimulationBase s = new SimulationBase(4, 20, 1);
+		s.getSpawner().setSpawnInterval(10);
+		s.getSpawner().setSpawnProbability(.5);
+		if(store != null) s.setOffHeapQueues(store);
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.out.println(store == null ? "queues on the heap" : "queues off the heap");
+		long start = System.nanoTime();
+		for(int h = 1; h <= hours; h ++) {
+			s.runUntil(h * 3600000.0);
+			long waiting = 0;
+			for(int f = 0; f < s.getNumberOfFloors(); f ++) waiting += s.getNumberOfPeopleOnFloor(f);
+			System.gc();
+			String line = String.format("%d h: %d waiting, %.0f MB heap", h, waiting, memory.getHeapMemoryUsage().getUsed() / 1e6);
+			if(store != null) line += String.format(", %.0f MB direct, %.0f MB spilled", store.getHotBytes() / 1e6, store.getSpilledBytes() / 1e6);
+			System.out.println(line + String.format(", %.1f s", (System.nanoTime() - start) / 1e9));
+		}
+		return new long[] {s.getStateHash(), s.getStatistics().getNumberDelivered(), Double.doubleToLongBits(s.getStatistics().getTotalWaitTime())};
+	}
+
+}
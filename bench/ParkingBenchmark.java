@@ -0,0 +1,98 @@
+import java.util.Random;
+
+/**
+ * Measures how parking idle elevators changes waits, on a day of quiet spells broken by rushes:
+ * a morning rush up from the lobby, a lunch rush to and from one floor, and an evening rush down to the lobby.
+ * Each seed's traffic is run once without parking and once with each time constant given.
+ *
+ * Usage: java ParkingBenchmark [seeds] [elevators] [floors] [time constants in seconds...]
+ */
+public class ParkingBenchmark {
+
+	private static final double PERIOD = 20 * 60 * 1000; // Simulation ms in each part of the day
+	private static final double QUIET = .02, RUSH = .4; // Calls per second
+
+	public static void main(String[] args) {
+		int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int elevators = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int floors = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		double[] timeConstants = {60, 300};
+		if(args.length > 3) {
+			timeConstants = new double[args.length - 3];
+			for(int i = 3; i < args.length; i ++) timeConstants[i - 3] = Double.parseDouble(args[i]);
+		}
+
+		System.out.println(elevators + " elevators, " + floors + " floors, " + seeds + " seeds of a " + (int)(7 * PERIOD / 60000) + " minute day");
+		System.out.println("parking,meanWait,p50Wait,p95Wait,maxWait,meanTrip,moves");
+		report("off", run(0, seeds, elevators, floors));
+		for(double t : timeConstants) report(t + " s", run(t * 1000, seeds, elevators, floors));
+	}
+
+	private static void report(String parking, double[] r) {
+		System.out.printf("%s,%.2f,%.1f,%.1f,%.1f,%.2f,%.0f%n", parking, r[0], r[1], r[2], r[3], r[4], r[5]);
+	}
+
+	/**
+	 * Run every seed with one setting.
+	 * @return waits and trip time in seconds, pooled over the seeds, and parking moves per seed
+	 */
+	private static double[] run(double timeConstant, int seeds, int elevators, int floors) {
+		Statistics total = new Statistics();
+		long moves = 0;
+		for(int seed = 1; seed <= seeds; seed ++) {
+			SimulationBase s = new SimulationBase(elevators, floors, seed);
+			s.getSpawner().setSpawnInterval(-1); // All traffic comes from the day's profile
+			s.setParking(timeConstant);
+			Random traffic = new Random(seed);
+			for(double time = 0; time < 7 * PERIOD; time += 1000) {
+				arrive(s, traffic, (int)(time / PERIOD), floors);
+				s.runUntil(time + 1000);
+			}
+			total.add(s.getStatistics());
+			moves += s.getNumberParked();
+		}
+		return new double[] {total.getMeanWaitTime() / 1000, total.getWaitTimePercentile(.5) / 1000, total.getWaitTimePercentile(.95) / 1000,
+				total.getMaxWaitTime() / 1000, total.getMeanTripTime() / 1000, (double)moves / seeds};
+	}
+
+	/**
+	 * Add one second's arrivals for a part of the day: quiet, morning, quiet, lunch, quiet, evening, quiet.
+	 */
+	private static void arrive(SimulationBase s, Random r, int part, int floors) {
+		boolean rush = part % 2 == 1;
+		double rate = rush ? RUSH : QUIET;
+		if(r.nextDouble() < rate) { // At most one call a second
+			int origin, destination;
+			int other = 1 + r.nextInt(floors - 1);
+			if(part == 1) { // Morning: up from the lobby
+				origin = 0;
+				destination = other;
+			}
+			else if(part == 3) { // Lunch: to and from one floor
+				int lunch = floors / 2;
+				if(r.nextBoolean()) {
+					origin = other == lunch ? 0 : other;
+					destination = lunch;
+				}
+				else {
+					origin = lunch;
+					destination = other == lunch ? 0 : other;
+				}
+			}
+			else if(part == 5) { // Evening: down to the lobby
+				origin = other;
+				destination = 0;
+			}
+			else if(r.nextBoolean()) {
+				origin = 0;
+				destination = other;
+			}
+			else {
+				origin = other;
+				destination = 0;
+			}
+			s.addPerson(new Person(origin, destination, (long)s.getTime()));
+		}
+	}
+
+}
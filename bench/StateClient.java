@@ -0,0 +1,217 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Reads a StateServer's stream, and checks that many readers, and one that never reads, don't slow the simulation down.
+ *
+ * Usage: java StateClient [readers] [simulated seconds] [elevators] [floors]
+ *        java StateClient --port n (print a line per second from a running server)
+ */
+public class StateClient {
+
+	public static void main(String[] args) throws Exception {
+		if(args.length == 2 && args[0].equals("--port")) {
+			watch(Integer.parseInt(args[1]));
+			return;
+		}
+		int numReaders = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 600; // Simulated
+		int elevators = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+		int floors = args.length > 3 ? Integer.parseInt(args[3]) : 400;
+
+		time(build(elevators, floors), seconds / 2); // Let the JIT compile the simulation first
+		double[] alone = time(build(elevators, floors), seconds);
+
+		SimulationBase s = build(elevators, floors);
+		StateServer server = new StateServer(s, 0);
+		server.setRate(30);
+		server.start();
+		ArrayList<Reader> readers = new ArrayList<Reader>();
+		for(int i = 0; i < numReaders; i ++) readers.add(new Reader(server.getPort()));
+		Socket stalled = new Socket();
+		stalled.setReceiveBufferSize(1024);
+		stalled.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+		long deadline = System.currentTimeMillis() + 5000;
+		while(server.getNumberOfReaders() < numReaders + 1 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+		double[] watched = time(s, seconds);
+
+		// Let the readers catch up with the last frame sent, then compare what they rebuilt with it
+		Thread.sleep(1000);
+		Frame last = server.getLastSent();
+		deadline = System.currentTimeMillis() + 5000;
+		boolean same = true;
+		for(Reader r : readers) {
+			while(r.state.tick != last.getTick() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+			synchronized(r.state) {
+				same &= r.state.matches(last);
+			}
+		}
+		long messages = 0, bytes = 0;
+		for(Reader r : readers) {
+			messages += r.state.messages;
+			bytes += r.state.bytes;
+		}
+		server.close();
+		stalled.close();
+
+		System.out.println(elevators + " elevators, " + floors + " floors, " + numReaders + " readers and one that never reads");
+		System.out.printf("no readers: %.0f updates per second, %.0f per CPU second%n", alone[0], alone[1]);
+		System.out.printf("with readers: %.0f updates per second, %.0f per CPU second, %.2fx%n", watched[0], watched[1], watched[1] / alone[1]);
+		System.out.println("(readers share the machine's " + Runtime.getRuntime().availableProcessors() + " processors with the simulation; CPU seconds are the simulation thread's own)");
+		if(numReaders > 0) System.out.printf("per reader: %d messages, %.0f bytes per message%n", messages / numReaders, (double)bytes / messages);
+		System.out.println("stalled reader dropped: " + (server.getNumberDropped() > 0));
+		System.out.println(same ? "readers match the simulation" : "READERS DIFFER FROM THE SIMULATION");
+		if(!same) System.exit(1);
+	}
+
+	/**
+	 * Run for the given simulated time.
+	 * @return updates per second of real time, and per second of the simulation thread's own CPU time
+	 */
+	private static double[] time(SimulationBase s, double seconds) {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long start = System.nanoTime(), cpu = threads.getCurrentThreadCpuTime();
+		s.runUntil(seconds * 1000);
+		return new double[] {s.getTick() / ((System.nanoTime() - start) / 1e9), s.getTick() / ((threads.getCurrentThreadCpuTime() - cpu) / 1e9)};
+	}
+
+	private static SimulationBase build(int elevators, int floors) {
+		SimulationBase s = new SimulationBase(elevators, floors, 1);
+		s.getSpawner().setSpawnInterval(10);
+		s.getSpawner().setSpawnProbability(.5);
+		s.setFrameRate(60);
+		return s;
+	}
+
+	private static void watch(int port) throws IOException {
+		State state = new State();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new Socket(InetAddress.getLoopbackAddress(), port).getInputStream()));
+		long next = 0;
+		while(true) {
+			state.apply(State.next(in));
+			if(System.currentTimeMillis() < next) continue;
+			next = System.currentTimeMillis() + 1000;
+			int moving = 0, waiting = 0;
+			for(int i = 0; i < state.positions.length; i ++) if(state.statuses[i] < 2) moving ++;
+			for(int q : state.queues) waiting += q;
+			System.out.printf("tick %d, %.0f s: %d of %d elevators moving, %d people waiting%n", state.tick, state.time / 1000, moving, state.positions.length, waiting);
+		}
+	}
+
+	/**
+	 * Reads the stream on its own thread, keeping the picture it describes.
+	 */
+	private static class Reader implements Runnable {
+
+		private Socket socket;
+		private State state = new State();
+
+		public Reader(int port) throws IOException {
+			socket = new Socket(InetAddress.getLoopbackAddress(), port);
+			Thread t = new Thread(this, "reader");
+			t.setDaemon(true);
+			t.start();
+		}
+
+		public void run() {
+			try {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				while(true) {
+					byte[] message = State.next(in);
+					synchronized(state) {
+						state.apply(message);
+					}
+				}
+			}
+			catch(IOException e) {
+				// Server closed
+			}
+		}
+
+	}
+
+	/**
+	 * The picture of the simulation rebuilt from keyframes and deltas.
+	 */
+	private static class State {
+
+		private volatile long tick = -1;
+		private long messages, bytes;
+		private double time;
+		private float[] positions = new float[0];
+		private byte[] statuses;
+		private int[] occupants, queues;
+
+		/**
+		 * Read the next message from the stream, without its length.
+		 */
+		public static byte[] next(DataInputStream in) throws IOException {
+			byte[] message = new byte[in.readInt()];
+			in.readFully(message);
+			return message;
+		}
+
+		public void apply(byte[] message) {
+			ByteBuffer in = ByteBuffer.wrap(message);
+			byte type = in.get();
+			tick = in.getLong();
+			time = in.getDouble();
+			if(type == StateServer.KEYFRAME) {
+				int elevators = readVarint(in), floors = readVarint(in);
+				positions = new float[elevators];
+				statuses = new byte[elevators];
+				occupants = new int[elevators];
+				queues = new int[floors];
+				for(int i = 0; i < elevators; i ++) {
+					positions[i] = in.getFloat();
+					statuses[i] = in.get();
+					occupants[i] = readVarint(in);
+				}
+				for(int i = 0; i < floors; i ++) queues[i] = readVarint(in);
+			}
+			else {
+				for(int n = readVarint(in); n > 0; n --) {
+					int i = readVarint(in), fields = in.get();
+					if((fields & StateServer.FIELD_POSITION) != 0) positions[i] = in.getFloat();
+					if((fields & StateServer.FIELD_STATUS) != 0) statuses[i] = in.get();
+					if((fields & StateServer.FIELD_OCCUPANTS) != 0) occupants[i] = readVarint(in);
+				}
+				for(int n = readVarint(in); n > 0; n --) {
+					int i = readVarint(in);
+					queues[i] = readVarint(in);
+				}
+			}
+			messages ++;
+			bytes += message.length + 4;
+		}
+
+		public boolean matches(Frame f) {
+			if(tick != f.getTick() || time != f.getTime() || positions.length != f.getNumberOfElevators()) return false;
+			for(int i = 0; i < positions.length; i ++) {
+				if(positions[i] != (float)f.getPosition(i) || !StateServer.STATUSES[statuses[i]].equals(f.getStatus(i))) return false;
+				if(occupants[i] != f.getNumberOfOccupants(i)) return false;
+			}
+			for(int i = 0; i < queues.length; i ++) if(queues[i] != f.getQueueLength(i)) return false;
+			return true;
+		}
+
+		private static int readVarint(ByteBuffer in) {
+			int value = 0;
+			for(int shift = 0; ; shift += 7) {
+				int b = in.get();
+				value |= (b & 0x7F) << shift;
+				if((b & 0x80) == 0) return value;
+			}
+		}
+
+	}
+
+}
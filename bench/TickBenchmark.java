@@ -0,0 +1,43 @@
+/**
+ * Times the sequential and parallel updates of a very large building, and checks that they give the same run.
+ *
+ * Usage: java TickBenchmark [elevators] [floors] [seconds] [threads]
+ */
+public class TickBenchmark {
+
+	public static void main(String[] args) {
+		int elevators = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int floors = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+		double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 600;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		SimulationBase sequential = build(elevators, floors);
+		long start = System.nanoTime();
+		sequential.runUntil(seconds * 1000);
+		double sequentialMs = (System.nanoTime() - start) / 1e6;
+
+		SimulationBase parallel = build(elevators, floors);
+		parallel.setTickThreads(threads);
+		start = System.nanoTime();
+		parallel.runUntil(seconds * 1000);
+		double parallelMs = (System.nanoTime() - start) / 1e6;
+		parallel.setTickThreads(1);
+
+		System.out.println(elevators + " elevators, " + floors + " floors, " + sequential.getTick() + " updates");
+		System.out.printf("sequential: %.0f ms (%.1f us per update)%n", sequentialMs, sequentialMs * 1000 / sequential.getTick());
+		System.out.printf("%d threads: %.0f ms (%.1f us per update), %.2fx%n", threads, parallelMs, parallelMs * 1000 / parallel.getTick(), sequentialMs / parallelMs);
+		boolean same = sequential.getStateHash() == parallel.getStateHash()
+				&& sequential.getStatistics().getTotalWaitTime() == parallel.getStatistics().getTotalWaitTime()
+				&& sequential.getStatistics().getNumberDelivered() == parallel.getStatistics().getNumberDelivered();
+		System.out.println(same ? "identical runs" : "RUNS DIFFER");
+		if(!same) System.exit(1);
+	}
+
+	private static SimulationBase build(int elevators, int floors) {
+		SimulationBase s = new SimulationBase(elevators, floors, 1);
+		s.getSpawner().setSpawnInterval(10);
+		s.getSpawner().setSpawnProbability(.5);
+		return s;
+	}
+
+}
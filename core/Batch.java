@@ -0,0 +1,148 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Runs one scenario headless and reports its key figures, for use from scripts.
+ *
+ * Usage: java Batch &lt;scenario file&gt; [key=value ...] [--summary file.json|file.csv] [--trips file.csv]
+ *
+ * Settings given as key=value override the scenario file. The summary goes to standard output as JSON unless a file is given;
+ * a CSV summary gets one row per run, so many runs can append to the same file. The columns are the scenario's keys, which depend on
+ * which elevators have settings of their own, so a run won't append to a file whose header is different.
+ */
+public class Batch {
+
+	private static final String[] KPIS = {"arrived", "boarded", "delivered", "meanWait", "p50Wait", "p95Wait", "maxWait", "meanTrip", "p95Trip"};
+	private static final int COUNTS = 3; // The first KPIS are whole numbers
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if(args.length < 1) {
+			System.err.println("Usage: java Batch <scenario file> [key=value ...] [--summary file.json|file.csv] [--trips file.csv] [--cache directory]");
+			System.exit(2);
+		}
+		Scenario scenario = Scenario.load(new File(args[0]));
+		String summary = null, trips = null, cache = null;
+		for(int i = 1; i < args.length; i ++) {
+			if(args[i].equals("--summary")) summary = args[++ i];
+			else if(args[i].equals("--trips")) trips = args[++ i];
+			else if(args[i].equals("--cache")) cache = args[++ i];
+			else scenario.set(args[i]);
+		}
+
+		ResultCache resultCache = cache != null ? new ResultCache(new File(cache), ResultCache.DEFAULT_SIZE) : null;
+		Statistics s;
+		if(trips == null && resultCache != null) {
+			s = resultCache.run(scenario);
+		}
+		else {
+			TripSink tripSink = trips != null ? new TripSink(new File(trips)) : null;
+			try {
+				s = scenario.run(tripSink);
+			}
+			finally {
+				if(tripSink != null) tripSink.close();
+			}
+			if(tripSink != null && tripSink.getDropped() > 0) System.err.println("Dropped " + tripSink.getDropped() + " trips because the writer fell behind");
+			if(resultCache != null) resultCache.put(scenario, s); // Trips are never cached, so they need a real run
+		}
+
+		if(summary == null) {
+			System.out.println(toJson(scenario, s));
+		}
+		else if(summary.endsWith(".csv")) {
+			File f = new File(summary);
+			boolean header = !f.exists() || f.length() == 0;
+			if(!header && !getCsvHeader(scenario).equals(readFirstLine(f))) {
+				System.err.println("Not appending to " + f + ": its columns don't match this scenario's keys");
+				System.exit(1);
+			}
+			PrintWriter out = new PrintWriter(new FileWriter(f, true));
+			if(header) out.println(getCsvHeader(scenario));
+			out.println(toCsv(scenario, s));
+			out.close();
+		}
+		else {
+			PrintWriter out = new PrintWriter(new FileWriter(summary));
+			out.println(toJson(scenario, s));
+			out.close();
+		}
+	}
+
+	/**
+	 * Get the key figures, with times in seconds, in the order of KPIS.
+	 */
+	public static double[] getKpis(Statistics s) {
+		return new double[] {
+				s.getNumberArrived(), s.getNumberBoarded(), s.getNumberDelivered(),
+				s.getMeanWaitTime() / 1000, s.getWaitTimePercentile(.5) / 1000, s.getWaitTimePercentile(.95) / 1000, s.getMaxWaitTime() / 1000,
+				s.getMeanTripTime() / 1000, s.getTripTimePercentile(.95) / 1000};
+	}
+
+	public static String toJson(Scenario scenario, Statistics s) {
+		StringBuilder json = new StringBuilder("{\"scenario\": {");
+		String separator = "";
+		for(String key : scenario.getKeys()) {
+			json.append(separator).append(quoteJson(key)).append(": ").append(quoteJson(scenario.get(key)));
+			separator = ", ";
+		}
+		json.append("}, \"kpis\": {");
+		double[] kpis = getKpis(s);
+		for(int i = 0; i < KPIS.length; i ++) json.append(i > 0 ? ", " : "").append('"').append(KPIS[i]).append("\": ").append(format(i, kpis[i]));
+		return json.append("}}").toString();
+	}
+
+	public static String getCsvHeader(Scenario scenario) {
+		StringBuilder csv = new StringBuilder();
+		for(String key : scenario.getKeys()) csv.append(quoteCsv(key)).append(',');
+		return csv.append(String.join(",", KPIS)).toString();
+	}
+
+	public static String toCsv(Scenario scenario, Statistics s) {
+		StringBuilder csv = new StringBuilder();
+		for(String key : scenario.getKeys()) csv.append(quoteCsv(scenario.get(key))).append(',');
+		double[] kpis = getKpis(s);
+		for(int i = 0; i < kpis.length; i ++) csv.append(i > 0 ? "," : "").append(format(i, kpis[i]));
+		return csv.toString();
+	}
+
+	/**
+	 * Quote a field if it needs it, as RFC 4180 does: in double quotes, with quotes inside doubled.
+	 */
+	private static String quoteCsv(String value) {
+		if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) return value;
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	private static String quoteJson(String value) {
+		StringBuilder json = new StringBuilder("\"");
+		for(int i = 0; i < value.length(); i ++) {
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\') json.append('\\').append(c);
+			else if(c == '\n') json.append("\\n");
+			else if(c == '\r') json.append("\\r");
+			else if(c == '\t') json.append("\\t");
+			else if(c < 0x20) json.append(String.format("\\u%04x", (int)c));
+			else json.append(c);
+		}
+		return json.append('"').toString();
+	}
+
+	private static String readFirstLine(File f) throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(f));
+		try {
+			return in.readLine();
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private static String format(int kpi, double value) {
+		return kpi < COUNTS ? String.valueOf((long)value) : String.valueOf(value);
+	}
+
+}
@@ -0,0 +1,488 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+
+/**
+ * Elevator for use with simulation.
+ */
+public class Elevator {
+	
+	private static final String[] STATUSES = {"up", "down", "waiting", "stopped"};
+	private int capacity = 12;
+	private double acceleration = 1;  // Floors per sec ^2 (simulation time)
+	private double minSpeed = .1; // Floors per sec (simulation time)
+	private double speed, currentPosition = 0, halfwayPoint; // speed is in floors per update
+	private int destination, currentFloor = 0; // currentFloor is integer version of currentPosition
+	private String status = "stopped";
+	private DestinationList destinations = new DestinationList();
+	private LinkedList<Person> occupants = new LinkedList<Person>();
+	private LinkedList<Person> arrivals = new LinkedList<Person>(); // People who got out since the simulation last collected them
+	private double waitTime = 0, waitRemaining = 0; // Simulation ms
+	private double tickLength = 1; // Real seconds per update
+	private double currentTimeScale = 1;
+	private SimulationRandom random;
+	private Runnable wakeListener; // Told whenever the elevator is given a destination
+	private BitSet servedFloors; // Or null for every floor
+	
+	public Elevator() {
+		this(new SimulationRandom());
+	}
+	
+	/**
+	 * @param r the source of the elevator's random choices, so that seeded runs can be repeated exactly
+	 */
+	public Elevator(SimulationRandom r) {
+		random = r;
+	}
+	
+	/**
+	 * Get an independent elevator in exactly the same state as this one.
+	 */
+	public Elevator copy() {
+		SimulationRandom r = new SimulationRandom();
+		r.setState(random.getState());
+		Elevator e = new Elevator(r);
+		e.capacity = capacity;
+		e.acceleration = acceleration;
+		e.minSpeed = minSpeed;
+		e.speed = speed;
+		e.currentPosition = currentPosition;
+		e.halfwayPoint = halfwayPoint;
+		e.destination = destination;
+		e.currentFloor = currentFloor;
+		e.status = status;
+		e.destinations.addAll(destinations);
+		e.occupants.addAll(occupants);
+		e.waitTime = waitTime;
+		e.waitRemaining = waitRemaining;
+		e.tickLength = tickLength;
+		e.currentTimeScale = currentTimeScale;
+		e.servedFloors = servedFloors;
+		return e;
+	}
+	
+	/**
+	 * Add someone to the elevator and input their destination.
+	 */
+	public void addOccupant(Person p) {
+		occupants.add(p);
+		goTo(p.getDestination());
+	}
+	
+	/**
+	 * Get maximum capacity of elevator.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Set maximum capacity of elevator.
+	 */
+	public void setCapacity(int c) {
+		capacity = c;
+	}
+	
+	/**
+	 * Set acceleration in floors per second ^ 2 (simulation time).
+	 */
+	public void setAcceleration(double a) {
+		acceleration = a;
+	}
+	
+	/**
+	 * Get the slowest speed the elevator creeps at when arriving, in floors per second (simulation time).
+	 */
+	public double getMinSpeed() {
+		return minSpeed;
+	}
+	
+	public void setMinSpeed(double s) {
+		minSpeed = s;
+	}
+	
+	/**
+	 * Get the floors the elevator stops at, or null if it stops at every floor. Not to be changed.
+	 */
+	public BitSet getServedFloors() {
+		return servedFloors;
+	}
+	
+	/**
+	 * Set the floors the elevator stops at, e.g. to make it an express car.
+	 * @param floors the floors, or null for every floor
+	 */
+	public void setServedFloors(BitSet floors) {
+		servedFloors = floors == null ? null : (BitSet)floors.clone();
+	}
+	
+	/**
+	 * Whether the elevator stops at a floor.
+	 */
+	public boolean serves(int floor) {
+		return servedFloors == null || servedFloors.get(floor);
+	}
+	
+	/**
+	 * Read a list of floors such as "0,20-39".
+	 * @return the floors, or null for "all"
+	 */
+	public static BitSet parseFloors(String s) {
+		if(s.equals("all")) return null;
+		BitSet floors = new BitSet();
+		for(String range : s.split(",")) {
+			int dash = range.indexOf('-', 1);
+			if(dash < 0) floors.set(Integer.parseInt(range.trim()));
+			else floors.set(Integer.parseInt(range.substring(0, dash).trim()), Integer.parseInt(range.substring(dash + 1).trim()) + 1);
+		}
+		return floors;
+	}
+	
+	/**
+	 * Write a list of floors the way parseFloors reads it.
+	 */
+	public static String formatFloors(BitSet floors) {
+		if(floors == null) return "all";
+		StringBuilder b = new StringBuilder();
+		for(int i = floors.nextSetBit(0); i >= 0; i = floors.nextSetBit(i + 1)) {
+			int end = floors.nextClearBit(i) - 1;
+			if(b.length() > 0) b.append(',');
+			b.append(i);
+			if(end > i) b.append('-').append(end);
+			i = end;
+		}
+		return b.toString();
+	}
+	
+	/**
+	 * Get a list of all current destinations.
+	 */
+	public DestinationList getDestinations() {
+		return destinations;
+	}
+	
+	/**
+	 * Get this car's acceleration in floors per second ^ 2 (simulation time).
+	 */
+	public double getAcceleration() {
+		return acceleration;
+	}
+	
+	/**
+	 * Return current direction of movement. If waiting, return direction of next destination.
+	 */
+	public String getDirection() {
+		if(status.equals("waiting")) {
+			if(!destinations.isEmpty()) {
+				if(destinations.peekFirst() > currentPosition) return "up";
+				else return "down";
+			}
+			else return null;
+		}
+		if(status.equals("stopped")) return null;
+		return status;
+	}
+	
+	/**
+	 * Pull the next destination from the list. It will be either the first or last item.
+	 */
+	private int getNextDestination() {
+		if(!destinations.isEmpty()) {
+			if(destinations.peekFirst() > currentPosition) {
+				status = "up";
+				return destinations.removeFirst();
+			}
+			if(destinations.peekLast() < currentPosition) {
+				status = "down";
+				return destinations.removeLast();
+			}
+			if(destinations.peekFirst() < currentPosition && destinations.peekLast() > currentPosition) {
+				if(random.nextDouble() < .5) {
+					status = "down";
+					return destinations.removeFirst();
+				}
+				else { 
+					status = "up";
+					return destinations.removeLast();
+				}
+			}
+			if(destinations.peekFirst() == destination) {;
+				status = "waiting";
+				waitRemaining = waitTime;
+				return destinations.removeFirst();
+			}
+			if(destinations.peekLast() == destination) {;
+				status = "waiting";
+				waitRemaining = waitTime;
+				return destinations.removeLast();
+			}
+		}
+		throw new RuntimeException("Error: Next destination not found!");
+	}
+	
+	/**
+	 * Get the people who have got out since this list was last cleared.
+	 */
+	public LinkedList<Person> getArrivals() {
+		return arrivals;
+	}
+	
+	/**
+	 * Get the people in the elevator.
+	 */
+	public LinkedList<Person> getOccupants() {
+		return occupants;
+	}
+	
+	/**
+	 * Get position of elevator (in floors).
+	 */
+	public double getPosition() {
+		return currentPosition;
+	}
+	
+	/**
+	 * Get speed in floors per update
+	 */
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Get status of elevator.
+	 * Possible statuses are "up" (going up), "down" (going down), "waiting" (doors open, not moving), and "stopped" (doors closed, not moving).
+	 */
+	public String getStatus() {
+		return status;
+	}
+	
+	/**
+	 * Order the elevator to go to a floor.
+	 */
+	public void goTo(int floor) {
+		if(destinations.isEmpty()) destinations.add(floor);
+		else destinations.addInOrder(floor);
+		if(wakeListener != null) wakeListener.run();
+	}
+	
+	/**
+	 * Set what to tell when the elevator is given a destination, so that a resting elevator can be woken. Not copied by copy().
+	 */
+	public void setWakeListener(Runnable l) {
+		wakeListener = l;
+	}
+	
+	/**
+	 * Whether the elevator is stopped with nowhere to go, so that update() does nothing.
+	 */
+	public boolean isIdle() {
+		return destinations.isEmpty() && status.equals("stopped");
+	}
+	
+	/**
+	 * If stopped, get next destination. If moving towards a destination, continue. If at destination, wait.
+	 */
+	private void move() {
+		double step = tickLength * currentTimeScale; // Simulation seconds per update
+		double acceleration = this.acceleration * step * step, minSpeed = this.minSpeed * step;
+		if(status.equals("stopped")) {
+			destination = getNextDestination();
+			halfwayPoint = (destination + currentPosition) / 2;
+		}
+		else {
+			if(status.equals("up")) {
+				if(currentPosition < destination) {
+					
+					// Accelerate to halfway point, then decelerate
+					if(currentPosition < halfwayPoint) {
+//						System.out.println(currentPosition);
+						speed += acceleration;
+//						System.out.println("Current speed is " + speed);
+					}
+					else {
+						if(speed - acceleration > minSpeed) speed -= acceleration;
+//						System.out.println("Stopping, floor is " + currentPosition + " and destination is " + destination);
+//						System.out.println("Current speed is " + speed);
+					}
+					
+					// Move
+					currentPosition += speed;
+				}
+				else {  // We are at destination
+					currentPosition = destination; // Snap to floor
+					speed = 0;
+					status = "waiting";
+					waitRemaining = waitTime;
+				}
+				currentFloor = (int)Math.floor(currentPosition);
+			}
+			if(status.equals("down")) {
+				if(currentPosition > destination) {
+					if(currentPosition > halfwayPoint) speed += acceleration;
+					else {
+						if(speed - acceleration > minSpeed) speed -= acceleration;
+//						System.out.println("Stopping, floor is " + currentPosition + " and destination is " + destination);
+//						System.out.println("Current speed is " + speed);
+					}
+					currentPosition -= speed;
+				}
+				else {
+					currentPosition = destination;
+					speed = 0;
+					status = "waiting";
+					waitRemaining = waitTime;
+				}
+				currentFloor = (int)Math.ceil(currentPosition);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Set how long each update lasts, rescaling the current speed to match. Acceleration and creep speed are per simulation second, so they need no change.
+	 * @param t the simulation's update frequency in seconds
+	 */
+	public void calibrateTimeScale(double t) {
+		if(t <= 0) return;
+		speed *= t / tickLength;
+		tickLength = t;
+	}
+	
+	/**
+	 * Modify movement speed to maintain proper elevator behavior relative to time scale
+	 * @param t the time scale to adjust to
+	 */
+	public void setTimeScale(double t) {
+		if(t <= 0) return;
+		speed *= t / currentTimeScale;
+		currentTimeScale = t;
+	}
+	
+	/**
+	 * Set how long the elevator waits when stopping at a floor.
+	 * @param t the new wait time in ms (simulation time)
+	 */
+	public void setWaitTime(int t) {
+		waitTime = Math.max(t, 0);
+	}
+	
+	/**
+	 * Remove people whose destination is the current floor.
+	 */
+	public void unload() {
+		Iterator<Person> iter = occupants.iterator();
+		while(iter.hasNext()) {
+			Person p = iter.next();
+			if(p.getDestination() == currentPosition) {
+				iter.remove();
+				arrivals.add(p);
+			}
+		}
+	}
+
+	/**
+	 * Write everything needed to resume this elevator exactly where it is.
+	 */
+	public void writeState(DataOutputStream out) throws IOException {
+		out.writeInt(capacity);
+		out.writeDouble(acceleration);
+		out.writeDouble(minSpeed);
+		out.writeUTF(formatFloors(servedFloors));
+		out.writeDouble(currentPosition);
+		out.writeDouble(speed);
+		out.writeDouble(halfwayPoint);
+		out.writeInt(destination);
+		out.writeInt(currentFloor);
+		for(int i = 0; i < STATUSES.length; i ++) if(STATUSES[i].equals(status)) out.writeByte(i);
+		out.writeInt(destinations.size());
+		for(int d : destinations) out.writeInt(d);
+		out.writeInt(occupants.size());
+		for(Person p : occupants) p.writeState(out);
+		out.writeDouble(waitTime);
+		out.writeDouble(waitRemaining);
+		out.writeDouble(tickLength);
+		out.writeDouble(currentTimeScale);
+		out.writeLong(random.getState());
+	}
+	
+	/**
+	 * Replace this elevator's state with one written by writeState.
+	 */
+	public void readState(DataInputStream in) throws IOException {
+		capacity = in.readInt();
+		acceleration = in.readDouble();
+		minSpeed = in.readDouble();
+		servedFloors = parseFloors(in.readUTF());
+		currentPosition = in.readDouble();
+		speed = in.readDouble();
+		halfwayPoint = in.readDouble();
+		destination = in.readInt();
+		currentFloor = in.readInt();
+		status = STATUSES[in.readByte()];
+		destinations.clear();
+		for(int i = in.readInt(); i > 0; i --) destinations.add(in.readInt());
+		occupants.clear();
+		for(int i = in.readInt(); i > 0; i --) occupants.add(Person.readState(in));
+		waitTime = in.readDouble();
+		waitRemaining = in.readDouble();
+		tickLength = in.readDouble();
+		currentTimeScale = in.readDouble();
+		random.setState(in.readLong());
+	}
+	
+	/**
+	 * Advance the elevator's state. Call repeatedly to run the simulation.
+	 */
+	public void update() {
+		if(isIdle()) return;
+		
+		// Move people out, then close the doors once the wait is over
+		if(status.equals("waiting")) {
+			if(!occupants.isEmpty()) unload();
+			waitRemaining -= tickLength * 1000 * currentTimeScale;
+			if(waitRemaining <= 0) status = "stopped";  // Ready for new orders
+			return;
+		}
+		
+		// Check for intermediate destinations
+		if(!status.equals("stopped") && !destinations.isEmpty()) {
+			if(destinations.getFirst() < destination && currentPosition < destinations.getFirst()) {
+				int temp = destination;
+				destination = destinations.removeFirst();
+				destinations.addInOrder(temp);
+			}
+			if(destinations.getLast() > destination && currentPosition > destinations.getLast()) {
+				int temp = destination;
+				destination = destinations.removeLast();
+				destinations.addInOrder(temp);
+			}
+		}
+		move();
+	}
+	
+	/**
+	 * A LinkedList that can insert new elements in order. No duplicate elements allowed.
+	 */
+	static class DestinationList extends LinkedList<Integer> {
+		
+		public void addInOrder(Integer value) {
+			ListIterator<Integer> iterator = listIterator();
+			while(iterator.hasNext()) {
+				int next = iterator.next();
+				if(next == value) return;
+				if(next > value) {
+					iterator.previous();
+					iterator.add(value);
+					return;
+				}
+			}
+			add(value);
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * Everything that happened during a simulation session, in order.
+ * Inputs (calls, people added from outside and parameter changes) are what a replay feeds back in. Arrivals and state checksums are what it compares against.
+ */
+public class EventLog {
+
+	private ArrayList<Event> events = new ArrayList<Event>();
+	private PrintWriter out; // Receives each event as soon as it is recorded, so the log survives a crash
+
+	public EventLog() {
+
+	}
+
+	/**
+	 * @param w where to write each event as it is recorded
+	 */
+	public EventLog(Writer w) {
+		out = new PrintWriter(w, true);
+	}
+
+	public void record(long tick, String type, String data) {
+		Event e = new Event(tick, type, data);
+		events.add(e);
+		if(out != null) out.println(e);
+	}
+
+	public Event get(int i) {
+		return events.get(i);
+	}
+
+	public int size() {
+		return events.size();
+	}
+
+	public void write(File f) throws IOException {
+		PrintWriter w = new PrintWriter(new FileWriter(f));
+		for(Event e : events) w.println(e);
+		w.close();
+	}
+
+	public static EventLog read(File f) throws IOException {
+		EventLog log = new EventLog();
+		BufferedReader r = new BufferedReader(new FileReader(f));
+		String line;
+		while((line = r.readLine()) != null) {
+			if(line.isEmpty()) continue;
+			String[] parts = line.split(" ", 3);
+			log.events.add(new Event(Long.parseLong(parts[0]), parts[1], parts.length > 2 ? parts[2] : ""));
+		}
+		r.close();
+		return log;
+	}
+
+	/**
+	 * One line of the log: the update it happened after, what kind of event it was, and its details.
+	 */
+	public static class Event {
+
+		private long tick;
+		private String type, data;
+
+		public Event(long tick, String type, String data) {
+			this.tick = tick;
+			this.type = type;
+			this.data = data;
+		}
+
+		public long getTick() {
+			return tick;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public String getData() {
+			return data;
+		}
+
+		/**
+		 * Inputs come from outside the simulation and can't be derived from its seed.
+		 */
+		public boolean isInput() {
+			return type.equals("call") || type.equals("person") || type.equals("param");
+		}
+
+		public boolean equals(Object o) {
+			if(!(o instanceof Event)) return false;
+			Event e = (Event)o;
+			return tick == e.tick && type.equals(e.type) && data.equals(e.data);
+		}
+
+		public int hashCode() {
+			return toString().hashCode();
+		}
+
+		public String toString() {
+			return tick + " " + type + " " + data;
+		}
+
+	}
+
+}
@@ -0,0 +1,69 @@
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * The people waiting on one floor, in the order they arrived.
+ * Forked simulations share their queues and only copy one when they change it, so a fork costs nothing for floors it never touches.
+ * OffHeapQueues makes queues that keep people outside the Java heap instead.
+ */
+public class FloorQueue implements Iterable<Person> {
+
+	private LinkedList<Person> people;
+	private boolean shared = false; // Whether another FloorQueue may be reading the same list
+
+	public FloorQueue() {
+		people = new LinkedList<Person>();
+	}
+
+	private FloorQueue(LinkedList<Person> p) {
+		people = p;
+		shared = true;
+	}
+
+	/**
+	 * Get a queue with the same people that can be changed independently of this one.
+	 */
+	public FloorQueue fork() {
+		shared = true;
+		return new FloorQueue(people);
+	}
+
+	public void add(Person p) {
+		modify().add(p);
+	}
+
+	public boolean isEmpty() {
+		return people.isEmpty();
+	}
+
+	public int size() {
+		return people.size();
+	}
+
+	/**
+	 * Iterate over the people waiting, without changing the queue.
+	 */
+	public Iterator<Person> iterator() {
+		return Collections.unmodifiableList(people).iterator();
+	}
+
+	/**
+	 * Iterate over the people waiting, in order, removing those who board.
+	 */
+	public Iterator<Person> boardingIterator() {
+		return modify().iterator();
+	}
+
+	/**
+	 * Get the queue's list for changing, copying it first if it is shared.
+	 */
+	private LinkedList<Person> modify() {
+		if(shared) {
+			people = new LinkedList<Person>(people);
+			shared = false;
+		}
+		return people;
+	}
+
+}
@@ -0,0 +1,71 @@
+/**
+ * An immutable picture of the simulation after one update.
+ * The display draws from these instead of the live model, so it never sees a half-finished update and never holds up the simulation.
+ */
+public class Frame {
+
+	private final long tick;
+	private final double time;
+	private final double[] positions;
+	private final String[] statuses;
+	private final int[][] occupants; // Destination of each person in each elevator
+	private final int[] queueLengths;
+	private final long published; // System.nanoTime() when the update finished
+
+	public Frame(long tick, double time, long published, double[] positions, String[] statuses, int[][] occupants, int[] queueLengths) {
+		this.tick = tick;
+		this.time = time;
+		this.published = published;
+		this.positions = positions;
+		this.statuses = statuses;
+		this.occupants = occupants;
+		this.queueLengths = queueLengths;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Get simulation time in ms.
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Get the real time the update finished, from System.nanoTime().
+	 */
+	public long getPublished() {
+		return published;
+	}
+
+	public int getNumberOfElevators() {
+		return positions.length;
+	}
+
+	public int getNumberOfFloors() {
+		return queueLengths.length;
+	}
+
+	public double getPosition(int elevator) {
+		return positions[elevator];
+	}
+
+	public String getStatus(int elevator) {
+		return statuses[elevator];
+	}
+
+	public int getNumberOfOccupants(int elevator) {
+		return occupants[elevator].length;
+	}
+
+	public int getOccupantDestination(int elevator, int i) {
+		return occupants[elevator][i];
+	}
+
+	public int getQueueLength(int floor) {
+		return queueLengths[floor];
+	}
+
+}
@@ -0,0 +1,145 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Counts of values in fixed-width bins, for percentiles without keeping every value.
+ * Values beyond the last bin are counted in it, and the largest value is kept exactly.
+ */
+public class Histogram {
+
+	private long[] bins;
+	private double binWidth;
+	private long count = 0;
+	private double total = 0, max = 0;
+	private boolean shared = false; // Whether a copy may be using the same bins, which must then be copied before changing
+
+	/**
+	 * @param bins how many bins
+	 * @param binWidth the range of values each bin covers
+	 */
+	public Histogram(int bins, double binWidth) {
+		this.bins = new long[bins];
+		this.binWidth = binWidth;
+	}
+
+	public void add(double value) {
+		modify();
+		int i = (int)(value / binWidth);
+		bins[Math.max(0, Math.min(bins.length - 1, i))] ++;
+		count ++;
+		total += value;
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Add all of another histogram's values to this one. The two must have the same bins.
+	 */
+	public void add(Histogram h) {
+		modify();
+		for(int i = 0; i < bins.length; i ++) bins[i] += h.bins[i];
+		count += h.count;
+		total += h.total;
+		max = Math.max(max, h.max);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getTotal() {
+		return total;
+	}
+
+	public double getMean() {
+		return count > 0 ? total / count : 0;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	public double getBinWidth() {
+		return binWidth;
+	}
+
+	public int getNumberOfBins() {
+		return bins.length;
+	}
+
+	public long getBin(int i) {
+		return bins[i];
+	}
+
+	/**
+	 * Get the value below which the given fraction of values fall, to the nearest bin.
+	 * @param q the fraction, from 0 to 1
+	 */
+	public double getPercentile(double q) {
+		if(count == 0) return 0;
+		long target = (long)Math.ceil(q * count), seen = 0;
+		for(int i = 0; i < bins.length; i ++) {
+			seen += bins[i];
+			if(seen >= target && seen > 0) return Math.min((i + 1) * binWidth, max);
+		}
+		return max;
+	}
+
+	/**
+	 * Get an independent copy. The bins are shared until either histogram changes.
+	 */
+	public Histogram copy() {
+		Histogram h = new Histogram(0, binWidth);
+		h.bins = bins;
+		h.count = count;
+		h.total = total;
+		h.max = max;
+		h.shared = shared = true;
+		return h;
+	}
+
+	private void modify() {
+		if(shared) {
+			bins = bins.clone();
+			shared = false;
+		}
+	}
+
+	public void clear() {
+		modify();
+		Arrays.fill(bins, 0);
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	/**
+	 * Write the histogram with only its non-empty bins.
+	 */
+	public void writeState(DataOutputStream out) throws IOException {
+		out.writeInt(bins.length);
+		out.writeDouble(binWidth);
+		out.writeLong(count);
+		out.writeDouble(total);
+		out.writeDouble(max);
+		int used = 0;
+		for(long b : bins) if(b != 0) used ++;
+		out.writeInt(used);
+		for(int i = 0; i < bins.length; i ++) {
+			if(bins[i] == 0) continue;
+			out.writeInt(i);
+			out.writeLong(bins[i]);
+		}
+	}
+
+	public static Histogram readState(DataInputStream in) throws IOException {
+		Histogram h = new Histogram(in.readInt(), in.readDouble());
+		h.count = in.readLong();
+		h.total = in.readDouble();
+		h.max = in.readDouble();
+		for(int i = in.readInt(); i > 0; i --) h.bins[in.readInt()] = in.readLong();
+		return h;
+	}
+
+}
@@ -0,0 +1,294 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Keeps the people waiting on floors outside the Java heap, for overload runs where the queues grow without bound.
+ *
+ * Each queue is a chain of fixed-size blocks of 16-byte records (origin, destination and arrival time), and people are only made into objects
+ * while they are looked at, so a queue of any length costs the heap one small object per block. Blocks live in direct buffers up to a budget
+ * shared by every queue. Past the budget, the block a growing queue has just filled, which is behind its head and won't be reached for a while,
+ * is moved to a memory-mapped spill file, and the operating system writes it out and pages it in as it needs to. The head and tail of each queue
+ * always stay in direct buffers, and a spilled block is brought back into one when it reaches the head of its queue, if the budget allows.
+ * Someone who boards is marked as gone where they are, so the order of the queue is kept exactly, and a run is the same as with queues on the heap.
+ *
+ * Only plain Person objects can be stored, not subclasses that carry more about the person. Only the thread that steps the simulation may use the queues.
+ * Mapped memory can't be released explicitly in this version of Java, so close() deletes the spill file and the mappings go with the store.
+ */
+public class OffHeapQueues implements Closeable {
+
+	public static final long DEFAULT_HOT_BYTES = 64 << 20;
+	public static final int DEFAULT_BLOCK = 4096; // People
+	private static final int RECORD = 16; // Bytes per person
+	private static final int REMOVED = -1; // Origin of someone who has boarded
+	private static final long REGION = 64 << 20; // Bytes of spill file mapped at a time, or one block if blocks are bigger
+
+	private File directory, spillFile;
+	private RandomAccessFile spill;
+	private int peoplePerBlock, blockBytes;
+	private long maxHotBlocks, hotBlocks = 0, spilledBlocks = 0, spillLength = 0;
+	private ArrayDeque<ByteBuffer> freeHot = new ArrayDeque<ByteBuffer>(), freeSpilled = new ArrayDeque<ByteBuffer>();
+
+	/**
+	 * @param directory where to put the spill file, if one is needed
+	 */
+	public OffHeapQueues(File directory) {
+		this(directory, DEFAULT_HOT_BYTES, DEFAULT_BLOCK);
+	}
+
+	/**
+	 * @param maxHotBytes how much direct memory the blocks behind the heads and tails of the queues may take before they are spilled
+	 * @param peoplePerBlock how many people each block holds
+	 */
+	public OffHeapQueues(File directory, long maxHotBytes, int peoplePerBlock) {
+		if(peoplePerBlock < 1 || peoplePerBlock > Integer.MAX_VALUE / RECORD) throw new IllegalArgumentException("Blocks must hold from 1 to " + Integer.MAX_VALUE / RECORD + " people");
+		this.directory = directory;
+		this.peoplePerBlock = peoplePerBlock;
+		blockBytes = peoplePerBlock * RECORD;
+		maxHotBlocks = maxHotBytes / blockBytes;
+	}
+
+	/**
+	 * Get a new, empty queue kept in this store.
+	 */
+	public FloorQueue newQueue() {
+		return new Queue();
+	}
+
+	/**
+	 * Get how many bytes of direct memory are holding people.
+	 */
+	public long getHotBytes() {
+		return hotBlocks * blockBytes;
+	}
+
+	/**
+	 * Get how many bytes of the spill file are holding people.
+	 */
+	public long getSpilledBytes() {
+		return spilledBlocks * blockBytes;
+	}
+
+	/**
+	 * Delete the spill file. The queues can't be used afterwards.
+	 */
+	public void close() throws IOException {
+		freeHot.clear();
+		freeSpilled.clear();
+		if(spill == null) return;
+		spill.close();
+		spill = null;
+		spillFile.delete();
+	}
+
+	private ByteBuffer allocateHot() {
+		hotBlocks ++;
+		return freeHot.isEmpty() ? ByteBuffer.allocateDirect(blockBytes) : freeHot.pop();
+	}
+
+	private ByteBuffer allocateSpilled() {
+		if(freeSpilled.isEmpty()) {
+			try {
+				if(spill == null) {
+					spillFile = File.createTempFile("queues", ".spill", directory);
+					spillFile.deleteOnExit();
+					spill = new RandomAccessFile(spillFile, "rw");
+				}
+				long regionBytes = Math.max(REGION, blockBytes);
+				ByteBuffer region = spill.getChannel().map(FileChannel.MapMode.READ_WRITE, spillLength, regionBytes);
+				spillLength += regionBytes;
+				for(int at = 0; at + blockBytes <= regionBytes; at += blockBytes) freeSpilled.add(region.slice(at, blockBytes));
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException("Can't spill floor queues to " + directory, e);
+			}
+		}
+		spilledBlocks ++;
+		return freeSpilled.pop();
+	}
+
+	private void release(Block b) {
+		if(b.hot) {
+			hotBlocks --;
+			freeHot.push(b.data);
+		}
+		else {
+			spilledBlocks --;
+			freeSpilled.push(b.data);
+		}
+	}
+
+	/**
+	 * Move a block between direct memory and the spill file.
+	 */
+	private void move(Block b, boolean hot) {
+		ByteBuffer data = hot ? allocateHot() : allocateSpilled();
+		data.put(b.start * RECORD, b.data, b.start * RECORD, (b.end - b.start) * RECORD);
+		release(b);
+		b.data = data;
+		b.hot = hot;
+	}
+
+	/**
+	 * Some of a queue's people, in the order they arrived.
+	 */
+	private static class Block {
+
+		private ByteBuffer data;
+		private boolean hot;
+		private int start = 0, end = 0; // People before start have all boarded, and the records from end on are unused
+
+		public Block(ByteBuffer data, boolean hot) {
+			this.data = data;
+			this.hot = hot;
+		}
+
+		public boolean isRemoved(int i) {
+			return data.getInt(i * RECORD) == REMOVED;
+		}
+
+		public Person get(int i) {
+			int at = i * RECORD;
+			return new Person(data.getInt(at), data.getInt(at + 4), data.getLong(at + 8));
+		}
+
+	}
+
+	private class Queue extends FloorQueue {
+
+		private ArrayDeque<Block> blocks = new ArrayDeque<Block>();
+		private int size = 0;
+
+		public void add(Person p) {
+			if(p.getClass() != Person.class) throw new IllegalArgumentException("Only plain people can be kept off the heap");
+			Block tail = blocks.peekLast();
+			if(tail == null || tail.end == peoplePerBlock) tail = addBlock();
+			int at = tail.end * RECORD;
+			tail.data.putInt(at, p.getOrigin());
+			tail.data.putInt(at + 4, p.getDestination());
+			tail.data.putLong(at + 8, p.getTimeCreated());
+			tail.end ++;
+			size ++;
+		}
+
+		/**
+		 * Start a new tail block. The old tail is now waiting its turn behind the head, so if direct memory is short, it is the one to spill.
+		 */
+		private Block addBlock() {
+			Block last = blocks.peekLast();
+			if(hotBlocks >= maxHotBlocks && last != null && last != blocks.peekFirst() && last.hot) move(last, false);
+			Block b = new Block(allocateHot(), true);
+			blocks.add(b);
+			return b;
+		}
+
+		/**
+		 * Drop the people at the head who have boarded, and the blocks they leave empty, bringing the next block back from the spill file if there's room.
+		 */
+		private void trimHead() {
+			while(!blocks.isEmpty()) {
+				Block head = blocks.peekFirst();
+				while(head.start < head.end && head.isRemoved(head.start)) head.start ++;
+				if(head.start < head.end) return;
+				if(blocks.size() == 1) {
+					head.start = head.end = 0; // Reuse it
+					return;
+				}
+				release(blocks.poll());
+				Block next = blocks.peekFirst();
+				if(!next.hot && hotBlocks < maxHotBlocks) move(next, true);
+			}
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public Iterator<Person> iterator() {
+			return new Walker(false);
+		}
+
+		public Iterator<Person> boardingIterator() {
+			trimHead();
+			return new Walker(true);
+		}
+
+		/**
+		 * Get a copy of the queue on the heap, for a forked simulation.
+		 */
+		public FloorQueue fork() {
+			FloorQueue copy = new FloorQueue();
+			for(Person p : this) copy.add(p);
+			return copy;
+		}
+
+		/**
+		 * Walks the queue in order, skipping those who have boarded.
+		 */
+		private class Walker implements Iterator<Person> {
+
+			private Iterator<Block> rest = blocks.iterator();
+			private Block block, lastBlock;
+			private int next, last = -1;
+			private boolean removable;
+
+			public Walker(boolean removable) {
+				this.removable = removable;
+				advance();
+			}
+
+			/**
+			 * Move to the next person still waiting, or past the end.
+			 */
+			private void advance() {
+				while(true) {
+					if(block != null) {
+						while(next < block.end && block.isRemoved(next)) next ++;
+						if(next < block.end) return;
+					}
+					if(!rest.hasNext()) {
+						block = null;
+						return;
+					}
+					block = rest.next();
+					next = block.start;
+				}
+			}
+
+			public boolean hasNext() {
+				return block != null;
+			}
+
+			public Person next() {
+				if(block == null) throw new NoSuchElementException();
+				Person p = block.get(next);
+				lastBlock = block;
+				last = next ++;
+				advance();
+				return p;
+			}
+
+			public void remove() {
+				if(!removable) throw new UnsupportedOperationException();
+				if(last < 0) throw new IllegalStateException();
+				lastBlock.data.putInt(last * RECORD, REMOVED);
+				last = -1;
+				size --;
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,73 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class Person {
+		
+		private int origin, destination;
+		private long timeCreated, boardTime = -1; // Simulation ms
+		
+		public Person(int origin, int d, long t) {
+			this.origin = origin;
+			destination = d;
+			timeCreated = t;
+		}
+		
+		/**
+		 * Get the same person, having boarded an elevator at the given time.
+		 * A new object rather than a change, because forked simulations share the people waiting.
+		 */
+		public Person board(long t) {
+			Person p = copy();
+			p.boardTime = t;
+			return p;
+		}
+		
+		/**
+		 * Get a new person with the same trip, not yet boarded. Subclasses that carry more about the person override this.
+		 */
+		protected Person copy() {
+			return new Person(origin, destination, timeCreated);
+		}
+		
+		public int getOrigin() {
+			return origin;
+		}
+
+		public int getDestination() {
+			return destination;
+		}
+		
+		public long getTimeCreated() {
+			return timeCreated;
+		}
+		
+		/**
+		 * Get when the person boarded an elevator, or -1 if they haven't yet.
+		 */
+		public long getBoardTime() {
+			return boardTime;
+		}
+		
+		public long getTimeSinceBirth(long now) {
+			return now - timeCreated;
+		}
+
+		public void setDestination(int destination) {
+			this.destination = destination;
+		}
+		
+		public void writeState(DataOutputStream out) throws IOException {
+			out.writeInt(origin);
+			out.writeInt(destination);
+			out.writeLong(timeCreated);
+			out.writeLong(boardTime);
+		}
+		
+		public static Person readState(DataInputStream in) throws IOException {
+			Person p = new Person(in.readInt(), in.readInt(), in.readLong());
+			p.boardTime = in.readLong();
+			return p;
+		}
+		
+	}
\ No newline at end of file
@@ -0,0 +1,260 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A dispatch policy worked out offline, so that answering a hall call live is a single table lookup.
+ *
+ * A call is described by a coarse state: the calling floor's band and the call's direction, and for each of the nearest candidate elevators,
+ * how far away it is and on which side, whether it is idle, heading towards the call or away from it, and how full it is.
+ * The table maps states to which of those nearest elevators to send. It is built by running many headless simulations with rollout dispatch
+ * and keeping, for each state seen often enough, the choice the rollouts made most often. States that aren't in the table are left to the heuristic.
+ *
+ * Usage: java PolicyTable &lt;scenario file&gt; &lt;table file&gt; [seeds] [key=value ...]
+ */
+public class PolicyTable {
+
+	public static final int NEAREST = 3; // Elevators described in each state
+	private static final int MAGIC = 0x504F4C31; // "POL1"
+	private static final int FLOOR_BANDS = 4; // The lobby, then the other floors in three bands
+	private static final double[] DISTANCES = {.5, 2.5, 6.5}; // Floors; farther than the last is one more band
+	private static final int LOAD_BANDS = 4; // Empty to a third full, to two thirds, below full, full
+	private static final int NO_ELEVATOR = (1 << 7) - 1; // Fills the slots when fewer elevators can answer
+	private static final int MIN_SAMPLES = 3; // Times a state must be seen to get into the table
+
+	private int[] keys; // Open addressing, with 0 for an empty slot; a state is stored as its key + 1
+	private byte[] choices; // Which of the nearest elevators to send
+	private int size = 0;
+
+	private PolicyTable(int capacity) {
+		capacity = Integer.highestOneBit(Math.max(capacity * 2 - 1, 1)) << 1; // At most half full
+		keys = new int[capacity];
+		choices = new byte[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Choose an elevator for a hall call.
+	 * @param direction "up", "down", or null if unknown
+	 * @param allowed the indexes of the elevators that may be sent
+	 * @return the index of the elevator to send, or -1 if the state isn't in the table
+	 */
+	public int choose(SimulationBase s, int floor, String direction, BitSet allowed) {
+		int[] nearest = getNearest(s.getElevatorList(), floor, allowed);
+		int choice = get(getKey(s, floor, direction, nearest));
+		return choice >= 0 && nearest[choice] >= 0 ? nearest[choice] : -1;
+	}
+
+	private int get(int key) {
+		int mask = keys.length - 1;
+		for(int i = mix(key) & mask; keys[i] != 0; i = (i + 1) & mask) if(keys[i] == key + 1) return choices[i];
+		return -1;
+	}
+
+	private void put(int key, int choice) {
+		int mask = keys.length - 1, i = mix(key) & mask;
+		while(keys[i] != 0 && keys[i] != key + 1) i = (i + 1) & mask;
+		if(keys[i] == 0) size ++;
+		keys[i] = key + 1;
+		choices[i] = (byte)choice;
+	}
+
+	private static int mix(int key) {
+		key *= 0x9E3779B9;
+		return key ^ (key >>> 16);
+	}
+
+	/**
+	 * Find the allowed elevators nearest a floor, nearest first and in index order among equals, as RolloutDispatcher orders its candidates.
+	 * @return their indexes, with -1 for missing ones
+	 */
+	static int[] getNearest(Elevator[] elevators, int floor, BitSet allowed) {
+		int[] nearest = new int[NEAREST];
+		double[] distances = new double[NEAREST];
+		int n = 0;
+		for(int i = allowed.nextSetBit(0); i >= 0; i = allowed.nextSetBit(i + 1)) {
+			double d = Math.abs(elevators[i].getPosition() - floor);
+			if(n == NEAREST && d >= distances[n - 1]) continue;
+			int j = n < NEAREST ? n ++ : n - 1;
+			for(; j > 0 && distances[j - 1] > d; j --) {
+				nearest[j] = nearest[j - 1];
+				distances[j] = distances[j - 1];
+			}
+			nearest[j] = i;
+			distances[j] = d;
+		}
+		for(; n < NEAREST; n ++) nearest[n] = -1;
+		return nearest;
+	}
+
+	/**
+	 * Describe a call and the elevators nearest it as one number.
+	 */
+	static int getKey(SimulationBase s, int floor, String direction, int[] nearest) {
+		int floors = s.getNumberOfFloors();
+		int key = floor == 0 || floors < 2 ? 0 : 1 + (floor - 1) * (FLOOR_BANDS - 1) / (floors - 1);
+		key = key * 3 + (direction == null ? 0 : direction.equals("up") ? 1 : 2);
+		for(int i : nearest) key = (key << 7) | (i < 0 ? NO_ELEVATOR : describe(s.getElevatorList()[i], floor));
+		return key;
+	}
+
+	/**
+	 * Describe one elevator as seen from a call, in 7 bits: distance band and side, motion, and load.
+	 */
+	private static int describe(Elevator e, int floor) {
+		double offset = e.getPosition() - floor;
+		int distance = 0;
+		while(distance < DISTANCES.length && Math.abs(offset) >= DISTANCES[distance]) distance ++;
+		int place = distance == 0 ? 0 : offset < 0 ? distance : DISTANCES.length + distance; // 0 to 6
+		int motion = 0; // Idle
+		String d = e.getDirection();
+		if(d != null) motion = d.equals("up") == offset < 0 ? 1 : 2; // Towards the call or away from it
+		int load = e.getOccupants().size() >= e.getCapacity() ? LOAD_BANDS - 1 : e.getOccupants().size() * (LOAD_BANDS - 1) / Math.max(e.getCapacity(), 1);
+		return (place * 3 + motion) * LOAD_BANDS + load; // Under 7 * 3 * 4 = 84
+	}
+
+	public void save(File f) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(size);
+			for(int i = 0; i < keys.length; i ++) {
+				if(keys[i] == 0) continue;
+				out.writeInt(keys[i] - 1);
+				out.writeByte(choices[i]);
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	public static PolicyTable load(File f) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+		try {
+			if(in.readInt() != MAGIC) throw new IOException("Not a policy table: " + f);
+			int n = in.readInt();
+			PolicyTable t = new PolicyTable(n);
+			for(int i = 0; i < n; i ++) t.put(in.readInt(), in.readByte());
+			return t;
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Watches rollout dispatch decide calls, and counts, for each state, how often it sent each of the nearest elevators.
+	 * States are described from the same allowed elevators the scheduler later looks them up with, so a slot means the same car in both.
+	 */
+	public static class Builder extends RolloutDispatcher {
+
+		private HashMap<Integer, int[]> counts = new HashMap<Integer, int[]>();
+		private long decisions = 0;
+
+		public Builder() {
+			setMaxCandidates(NEAREST);
+			setBudget(0); // Wait for every rollout, so that tables are repeatable
+		}
+
+		public int choose(SimulationBase s, int floor, String direction, BitSet allowed) {
+			int[] nearest = getNearest(s.getElevatorList(), floor, allowed);
+			int key = getKey(s, floor, direction, nearest);
+			int chosen = super.choose(s, floor, direction, allowed);
+			for(int i = 0; i < NEAREST; i ++) {
+				if(chosen < 0 || nearest[i] != chosen) continue;
+				synchronized(this) {
+					counts.computeIfAbsent(key, k -> new int[NEAREST])[i] ++;
+					decisions ++;
+				}
+			}
+			return chosen;
+		}
+
+		public synchronized long getNumberOfDecisions() {
+			return decisions;
+		}
+
+		/**
+		 * Get a table of the most common choice in every state seen often enough.
+		 */
+		public synchronized PolicyTable build() {
+			int n = 0;
+			for(int[] c : counts.values()) if(total(c) >= MIN_SAMPLES) n ++;
+			PolicyTable t = new PolicyTable(n);
+			for(Map.Entry<Integer, int[]> e : counts.entrySet()) {
+				int[] c = e.getValue();
+				if(total(c) < MIN_SAMPLES) continue;
+				int best = 0;
+				for(int i = 1; i < c.length; i ++) if(c[i] > c[best]) best = i;
+				t.put(e.getKey(), best);
+			}
+			return t;
+		}
+
+		private static int total(int[] c) {
+			int total = 0;
+			for(int x : c) total += x;
+			return total;
+		}
+
+	}
+
+	/**
+	 * Build a table from runs of a scenario with successive seeds, then compare it with the heuristic on the next seed.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if(args.length < 2) {
+			System.err.println("Usage: java PolicyTable <scenario file> <table file> [seeds] [key=value ...]");
+			System.exit(2);
+		}
+		Scenario scenario = Scenario.load(new File(args[0]));
+		File file = new File(args[1]);
+		int seeds = 8;
+		for(int i = 2; i < args.length; i ++) {
+			if(args[i].contains("=")) scenario.set(args[i]);
+			else seeds = Integer.parseInt(args[i]);
+		}
+		long seed = scenario.getLong("seed");
+
+		Builder builder = new Builder();
+		long start = System.nanoTime();
+		try {
+			for(int i = 0; i < seeds; i ++) {
+				SimulationBase s = scenario.build();
+				s.setDispatcher(builder);
+				s.runUntil((scenario.getDouble("warmup") + scenario.getDouble("duration")) * 1000);
+				scenario.set("seed", String.valueOf(seed + i + 1));
+			}
+		}
+		finally {
+			builder.shutdown();
+		}
+		PolicyTable table = builder.build();
+		table.save(file);
+		System.out.printf("%d decisions in %.0f s, %d states in the table, %d bytes%n", builder.getNumberOfDecisions(), (System.nanoTime() - start) / 1e9, table.size(), file.length());
+
+		// scenario's seed is now the first one the table hasn't seen
+		scenario.set("dispatch", "heuristic");
+		Statistics heuristic = scenario.run(null);
+		scenario.set("dispatch", "table");
+		scenario.set("policy", file.getPath());
+		start = System.nanoTime();
+		Statistics tabled = scenario.run(null);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("seed %d, heuristic: mean wait %.2f s, 95th percentile %.0f s%n", seed + seeds, heuristic.getMeanWaitTime() / 1000, heuristic.getWaitTimePercentile(.95) / 1000);
+		System.out.printf("seed %d, table: mean wait %.2f s, 95th percentile %.0f s, run in %.2f s%n", seed + seeds, tabled.getMeanWaitTime() / 1000, tabled.getWaitTimePercentile(.95) / 1000, seconds);
+	}
+
+}
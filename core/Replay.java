@@ -0,0 +1,151 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Re-runs a recorded session headless and as fast as possible.
+ * Inputs from the recording are fed back in at the update they originally happened after, and everything else the simulation records is compared against the recording.
+ */
+public class Replay {
+
+	private EventLog recorded, replayed = new EventLog();
+	private SimulationBase base;
+	private Divergence divergence;
+	private int compared = 0; // Events checked against the recording so far
+
+	public Replay(EventLog recorded) {
+		this.recorded = recorded;
+		EventLog.Event session = recorded.get(0);
+		if(!session.getType().equals("session")) throw new IllegalArgumentException("Log does not start with a session event");
+		String[] args = session.getData().split(" ");
+		base = new SimulationBase(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Long.parseLong(args[2]));
+		base.setEventLog(replayed);
+	}
+
+	/**
+	 * Run until the given simulation time, the end of the recording, or the first divergence from it.
+	 * @param until simulation time in ms
+	 * @return the first divergence, or null if the replay matched the recording
+	 */
+	public Divergence runUntil(double until) {
+		while(divergence == null) {
+
+			// Feed in the inputs that arrived before the next update
+			while(replayed.size() < recorded.size()) {
+				EventLog.Event next = recorded.get(replayed.size());
+				if(!next.isInput() || next.getTick() != base.getTick()) break;
+				int before = replayed.size();
+				apply(next);
+				base.applyInputs();
+				if(replayed.size() == before) {
+					divergence = new Divergence(replayed.size(), next, null);
+					return divergence;
+				}
+			}
+			if(!compare() || replayed.size() >= recorded.size() || base.getTime() >= until) break;
+			base.step();
+			compare();
+		}
+		return divergence;
+	}
+
+	public Divergence runToEnd() {
+		return runUntil(Double.MAX_VALUE);
+	}
+
+	/**
+	 * Get the replayed simulation, e.g. to inspect its state where the replay stopped.
+	 */
+	public SimulationBase getSimulation() {
+		return base;
+	}
+
+	/**
+	 * Check everything recorded since the last comparison.
+	 * @return whether the replay still matches
+	 */
+	private boolean compare() {
+		for(; compared < replayed.size() && compared < recorded.size(); compared ++) {
+			if(!replayed.get(compared).equals(recorded.get(compared))) {
+				divergence = new Divergence(compared, recorded.get(compared), replayed.get(compared));
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void apply(EventLog.Event e) {
+		String[] param = e.getData().split(" ");
+		if(e.getType().equals("call")) {
+			if(param.length > 1) base.callElevatorToFloor(Integer.parseInt(param[0]), param[1]);
+			else base.callElevatorToFloor(Integer.parseInt(param[0]));
+			return;
+		}
+		if(e.getType().equals("person")) {
+			base.addPerson(new Person(Integer.parseInt(param[0]), Integer.parseInt(param[1]), Long.parseLong(param[2])));
+			return;
+		}
+		if(param[0].equals("capacity")) base.setCapacity(Integer.parseInt(param[1]));
+		else if(param[0].equals("loadingWaitTime")) base.setLoadingWaitTime(Integer.parseInt(param[1]));
+		else if(param[0].equals("updateFrequency")) base.setUpdateFrequency(Integer.parseInt(param[1]));
+		else if(param[0].equals("timeScale")) base.setTimeScale(Double.parseDouble(param[1]));
+		else if(param[0].equals("spawnInterval")) base.getSpawner().setSpawnInterval(Integer.parseInt(param[1]));
+		else if(param[0].equals("spawnProbability")) base.getSpawner().setSpawnProbability(Double.parseDouble(param[1]));
+		else if(param[0].equals("parking")) base.setParking(Double.parseDouble(param[1]));
+		else if(param[0].equals("elevator")) base.setElevator(Integer.parseInt(param[1]), Integer.parseInt(param[2]), Double.parseDouble(param[3]), Double.parseDouble(param[4]), Elevator.parseFloors(param[5]));
+		else if(param[0].equals("groupMemberProbability")) base.getSpawner().setGroupMemberProbability(Double.parseDouble(param[1]));
+	}
+
+	/**
+	 * The first event where a replay stopped matching its recording.
+	 */
+	public static class Divergence {
+
+		private int index;
+		private EventLog.Event expected, actual;
+
+		public Divergence(int index, EventLog.Event expected, EventLog.Event actual) {
+			this.index = index;
+			this.expected = expected;
+			this.actual = actual;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public EventLog.Event getExpected() {
+			return expected;
+		}
+
+		public EventLog.Event getActual() {
+			return actual;
+		}
+
+		public String toString() {
+			return "Event " + index + ": expected \"" + expected + "\", got \"" + actual + "\"";
+		}
+
+	}
+
+	/**
+	 * Usage: java Replay &lt;log file&gt; [stop time in seconds]
+	 * Exits with status 1 if the replay diverges from the recording.
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 1) {
+			System.err.println("Usage: java Replay <log file> [stop time in seconds]");
+			System.exit(2);
+		}
+		Replay replay = new Replay(EventLog.read(new File(args[0])));
+		double until = args.length > 1 ? Double.parseDouble(args[1]) * 1000 : Double.MAX_VALUE;
+		Divergence d = replay.runUntil(until);
+		SimulationBase s = replay.getSimulation();
+		System.out.println("Replayed " + s.getTick() + " updates to " + s.getTime() / 1000 + "s");
+		if(d != null) {
+			System.out.println("First divergence: " + d);
+			System.exit(1);
+		}
+		System.out.println("Matches recording");
+	}
+
+}
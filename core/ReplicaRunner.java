@@ -0,0 +1,162 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a scenario with one seed after another until its key figures are known precisely enough.
+ *
+ * Replicas run in parallel but are counted in seed order, so the result does not depend on which finish first.
+ * After each one, 95% confidence intervals are worked out for the mean and 95th percentile wait across replicas.
+ * Once both are narrow enough, the replicas still running are cancelled.
+ */
+public class ReplicaRunner {
+
+	private static final double Z = 1.96; // For 95% confidence intervals
+
+	private ExecutorService workers;
+	private int parallelism; // How many replicas to keep running at once
+	private double precision = .05; // Largest confidence interval half-width, as a fraction of the mean
+	private int minReplicas = 5, maxReplicas = 1000;
+	private ResultCache cache; // Or null
+
+	public ReplicaRunner(ExecutorService workers, int parallelism) {
+		this.workers = workers;
+		this.parallelism = parallelism;
+	}
+
+	public void setPrecision(double fraction) {
+		precision = fraction;
+	}
+
+	public void setMinReplicas(int n) {
+		minReplicas = n;
+	}
+
+	public void setMaxReplicas(int n) {
+		maxReplicas = n;
+	}
+
+	public void setCache(ResultCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Run replicas of a scenario, with seeds counting up from its own, until the precision is reached or the maximum number have run.
+	 */
+	public Result run(Scenario scenario) throws InterruptedException, ExecutionException {
+		Result result = new Result();
+		ArrayDeque<Future<Statistics>> running = new ArrayDeque<Future<Statistics>>();
+		long seed = scenario.getLong("seed");
+		int submitted = 0;
+		try {
+			while(result.getReplicas() < maxReplicas) {
+				while(submitted < maxReplicas && running.size() < parallelism) {
+					final Scenario replica = scenario.copy();
+					replica.set("seed", String.valueOf(seed + submitted ++));
+					running.add(workers.submit(() -> cache != null ? cache.run(replica) : replica.run(null)));
+				}
+				result.add(running.remove().get());
+				if(result.getReplicas() >= minReplicas && result.isWithin(precision)) {
+					result.converged = true;
+					break;
+				}
+			}
+		}
+		finally {
+			for(Future<Statistics> f : running) f.cancel(true);
+		}
+		return result;
+	}
+
+	/**
+	 * The pooled statistics of every replica counted, and estimates of the key figures across them.
+	 */
+	public static class Result {
+
+		private Statistics statistics = new Statistics();
+		private Estimate meanWait = new Estimate(), p95Wait = new Estimate();
+		private boolean converged;
+
+		private void add(Statistics s) {
+			statistics.add(s);
+			meanWait.add(s.getMeanWaitTime() / 1000);
+			p95Wait.add(s.getWaitTimePercentile(.95) / 1000);
+		}
+
+		private boolean isWithin(double precision) {
+			return meanWait.isWithin(precision) && p95Wait.isWithin(precision);
+		}
+
+		public Statistics getStatistics() {
+			return statistics;
+		}
+
+		public int getReplicas() {
+			return meanWait.getCount();
+		}
+
+		/**
+		 * Get the estimate of the mean wait, in seconds.
+		 */
+		public Estimate getMeanWait() {
+			return meanWait;
+		}
+
+		/**
+		 * Get the estimate of the 95th percentile wait, in seconds.
+		 */
+		public Estimate getP95Wait() {
+			return p95Wait;
+		}
+
+		/**
+		 * Whether the precision was reached before the maximum number of replicas.
+		 */
+		public boolean isConverged() {
+			return converged;
+		}
+
+	}
+
+	/**
+	 * A running mean and variance of one figure across replicas (Welford's method).
+	 */
+	public static class Estimate {
+
+		private int count;
+		private double mean, squares;
+
+		public void add(double x) {
+			count ++;
+			double delta = x - mean;
+			mean += delta / count;
+			squares += delta * (x - mean);
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		public double getVariance() {
+			return count > 1 ? squares / (count - 1) : Double.POSITIVE_INFINITY;
+		}
+
+		/**
+		 * Get the half-width of the 95% confidence interval on the mean.
+		 */
+		public double getHalfWidth() {
+			return Z * Math.sqrt(getVariance() / count);
+		}
+
+		public boolean isWithin(double precision) {
+			return getHalfWidth() <= precision * Math.abs(mean);
+		}
+
+	}
+
+}
@@ -0,0 +1,186 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Keeps the statistics of finished runs on disk, so that a scenario that has been run before need not be run again.
+ *
+ * Entries are keyed by a SHA-256 hash of the normalized scenario and of the compiled simulation classes,
+ * and of the policy table when the scenario dispatches by one, so changing any of them gives a different key.
+ * Once the entries take up more than the size limit, the ones least recently used are deleted.
+ */
+public class ResultCache {
+
+	public static final long DEFAULT_SIZE = 64 << 20;
+	private static final int MAGIC = 0x45524331; // "ERC1"
+	private static final Class<?>[] CODE = { // Classes whose behaviour decides the results, each hashed with the classes nested in it
+			SimulationBase.class, Elevator.class, Person.class, FloorQueue.class,
+			SimulationRandom.class, RolloutDispatcher.class, PolicyTable.class, Statistics.class, Histogram.class, Scenario.class};
+	private static String codeVersion;
+
+	private File directory;
+	private long maxBytes;
+
+	/**
+	 * @param maxBytes how much space entries may take up before the oldest are deleted
+	 */
+	public ResultCache(File directory, long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		directory.mkdirs();
+	}
+
+	/**
+	 * Get the cached statistics of a scenario, or run it and cache them.
+	 */
+	public Statistics run(Scenario s) throws InterruptedException, IOException {
+		Statistics cached = get(s);
+		if(cached != null) return cached;
+		Statistics fresh = s.run(null);
+		put(s, fresh);
+		return fresh;
+	}
+
+	/**
+	 * Get the cached statistics of a scenario, or null if it hasn't been run.
+	 */
+	public Statistics get(Scenario s) {
+		File f = getFile(s);
+		if(!f.exists()) return null;
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+			try {
+				if(in.readInt() != MAGIC || !in.readUTF().equals(s.getNormalized())) return null;
+				Statistics statistics = Statistics.readState(in);
+				f.setLastModified(System.currentTimeMillis());
+				return statistics;
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch(IOException e) {
+			f.delete(); // Unreadable, so no use
+			return null;
+		}
+	}
+
+	public void put(Scenario s, Statistics statistics) throws IOException {
+		File tmp = File.createTempFile("entry", ".tmp", directory);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeUTF(s.getNormalized());
+				statistics.writeState(out);
+			}
+			finally {
+				out.close();
+			}
+			// Readers on other threads or processes see the whole entry or none of it
+			Files.move(tmp.toPath(), getFile(s).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			tmp.delete();
+		}
+		evict();
+	}
+
+	/**
+	 * Delete the least recently used entries until they fit in the size limit.
+	 */
+	private synchronized void evict() {
+		File[] entries = directory.listFiles((dir, name) -> name.endsWith(".bin"));
+		if(entries == null) return;
+		long total = 0;
+		for(File f : entries) total += f.length();
+		if(total <= maxBytes) return;
+		Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+		for(int i = 0; i < entries.length && total > maxBytes; i ++) {
+			long length = entries[i].length();
+			if(entries[i].delete()) total -= length;
+		}
+	}
+
+	private File getFile(Scenario s) {
+		return new File(directory, getKey(s) + ".bin");
+	}
+
+	/**
+	 * Get the key of a scenario: a hash of its normalized settings and the code version.
+	 */
+	public static String getKey(Scenario s) {
+		MessageDigest digest = getDigest();
+		digest.update(s.getNormalized().getBytes(StandardCharsets.UTF_8));
+		digest.update(getCodeVersion().getBytes(StandardCharsets.UTF_8));
+		if(s.get("dispatch").equals("table")) {
+			try {
+				digest.update(Files.readAllBytes(new File(s.get("policy")).toPath()));
+			}
+			catch(IOException e) {
+				throw new IllegalArgumentException("Can't read the policy table " + s.get("policy"), e);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Get a hash of the compiled simulation classes, nested classes included.
+	 */
+	public static synchronized String getCodeVersion() {
+		if(codeVersion == null) {
+			MessageDigest digest = getDigest();
+			for(Class<?> c : CODE) addClass(digest, c);
+			codeVersion = toHex(digest.digest());
+		}
+		return codeVersion;
+	}
+
+	private static void addClass(MessageDigest digest, Class<?> c) {
+		try {
+			InputStream in = c.getResourceAsStream(c.getName().substring(c.getName().lastIndexOf('.') + 1) + ".class");
+			if(in == null) throw new IllegalStateException("Can't find the class file of " + c.getName());
+			try {
+				digest.update(in.readAllBytes());
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Can't read the class file of " + c.getName(), e);
+		}
+		Class<?>[] nested = c.getDeclaredClasses();
+		Arrays.sort(nested, Comparator.comparing(Class::getName));
+		for(Class<?> n : nested) addClass(digest, n);
+	}
+
+	private static MessageDigest getDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // Every Java platform has SHA-256
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder b = new StringBuilder();
+		for(byte x : bytes) b.append(String.format("%02x", x));
+		return b.toString();
+	}
+
+}
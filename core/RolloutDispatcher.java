@@ -0,0 +1,145 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses which elevator answers a hall call by simulating the near future once per candidate, in parallel, and picking the future with the least total waiting.
+ * Every rollout starts from a fork of the same state with the same random state, so the candidates are compared on identical traffic.
+ * Decisions depend on which rollouts finish within the latency budget, so runs with a budget are not exactly repeatable.
+ */
+public class RolloutDispatcher {
+
+	private ExecutorService workers;
+	private double horizon = 60000; // Simulation ms to look ahead
+	private long budget = 50; // Real ms allowed per decision, or 0 for no limit
+	private int maxCandidates = 8; // Only the elevators nearest the call are tried
+
+	public RolloutDispatcher() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public RolloutDispatcher(int threads) {
+		workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "rollout");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Decide which elevator to send.
+	 * @param s the simulation, which must not change until this returns
+	 * @param floor the floor calling
+	 * @param direction "up", "down", or null if unknown
+	 * @param allowed the indexes of the elevators that may be sent
+	 * @return the index of the elevator to send, or -1 if no rollout finished in time
+	 */
+	public int choose(SimulationBase s, int floor, String direction, BitSet allowed) {
+		final Elevator[] elevators = s.getElevatorList();
+		Integer[] candidates = new Integer[allowed.cardinality()];
+		for(int i = allowed.nextSetBit(0), n = 0; i >= 0; i = allowed.nextSetBit(i + 1)) candidates[n ++] = i;
+		if(candidates.length > maxCandidates) {
+			final int f = floor;
+			Arrays.sort(candidates, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					return Double.compare(Math.abs(elevators[a].getPosition() - f), Math.abs(elevators[b].getPosition() - f));
+				}
+			});
+			candidates = Arrays.copyOf(candidates, maxCandidates);
+		}
+
+		// Fork here, where the simulation is known not to change, and only simulate on the workers
+		List<Rollout> rollouts = new ArrayList<Rollout>();
+		for(int i : candidates) rollouts.add(new Rollout(s.fork(), i, floor));
+		List<Future<Double>> results;
+		try {
+			if(budget > 0) results = workers.invokeAll(rollouts, budget, TimeUnit.MILLISECONDS);
+			else results = workers.invokeAll(rollouts);
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+
+		int best = -1;
+		double bestCost = Double.MAX_VALUE;
+		for(int i = 0; i < results.size(); i ++) {
+			try {
+				double cost = results.get(i).get();
+				if(cost < bestCost) {
+					bestCost = cost;
+					best = rollouts.get(i).elevator;
+				}
+			}
+			catch(CancellationException e) {
+				// Ran out of time
+			}
+			catch(ExecutionException e) {
+				// A future that breaks the simulation is not a candidate
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return -1;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param h simulation ms each rollout looks ahead
+	 */
+	public void setHorizon(double h) {
+		horizon = h;
+	}
+
+	/**
+	 * @param b real ms allowed per decision, or 0 for no limit
+	 */
+	public void setBudget(long b) {
+		budget = b;
+	}
+
+	public void setMaxCandidates(int n) {
+		maxCandidates = n;
+	}
+
+	public void shutdown() {
+		workers.shutdownNow();
+	}
+
+	/**
+	 * One possible future: the given elevator takes the call, then the simulation runs on.
+	 */
+	private class Rollout implements Callable<Double> {
+
+		private SimulationBase future;
+		private int elevator, floor;
+
+		public Rollout(SimulationBase future, int elevator, int floor) {
+			this.future = future;
+			this.elevator = elevator;
+			this.floor = floor;
+		}
+
+		public Double call() throws InterruptedException {
+			future.getElevatorList()[elevator].goTo(floor);
+			double until = future.getTime() + horizon;
+			while(future.getTime() < until) {
+				if(Thread.interrupted()) throw new InterruptedException();
+				future.step();
+			}
+			return future.getTotalWaitTime();
+		}
+
+	}
+
+}
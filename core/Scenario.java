@@ -0,0 +1,219 @@
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Everything that defines one simulation run, read from a properties file.
+ * Times are in simulation ms except warmup, duration and parking, which are in simulated seconds.
+ * Keys that are left out take the same defaults as the interactive simulation.
+ *
+ * Elevators can be given their own settings, for fleets that mix local, express and service cars: elevator.N.capacity,
+ * elevator.N.acceleration (floors per second ^ 2), elevator.N.minSpeed (floors per second) and elevator.N.floors, the floors it stops at
+ * such as "0,20-39" or "all". Elevators are numbered from 0, and settings left out take the fleet's.
+ */
+public class Scenario {
+
+	private static final List<String> KEYS = Arrays.asList(
+			"floors", "elevators", "capacity", "loadingWaitTime", "updateFrequency",
+			"spawnInterval", "spawnProbability", "groupMemberProbability",
+			"dispatch", "policy", "parking", "warmup", "duration", "seed");
+	private static final List<String> ELEVATOR_KEYS = Arrays.asList("capacity", "acceleration", "minSpeed", "floors");
+	private Properties properties = new Properties();
+
+	public Scenario() {
+		set("floors", "10");
+		set("elevators", "4");
+		set("capacity", "12");
+		set("loadingWaitTime", "3000");
+		set("updateFrequency", "20");
+		set("spawnInterval", "100");
+		set("spawnProbability", "0.05");
+		set("groupMemberProbability", "0.5");
+		set("dispatch", "heuristic"); // Or "rollout", or "table" to use the policy table file
+		set("policy", "");
+		set("parking", "0"); // Seconds over which arrival rates are averaged to park idle elevators, or 0 to leave them
+		set("warmup", "0");
+		set("duration", "3600");
+		set("seed", "1");
+	}
+
+	public static Scenario load(File f) throws IOException {
+		Reader r = new FileReader(f);
+		try {
+			return load(r);
+		}
+		finally {
+			r.close();
+		}
+	}
+
+	public static Scenario load(Reader r) throws IOException {
+		Properties p = new Properties();
+		p.load(r);
+		Scenario s = new Scenario();
+		for(String key : p.stringPropertyNames()) s.set(key, p.getProperty(key).trim());
+		return s;
+	}
+
+	public Scenario copy() {
+		Scenario s = new Scenario();
+		s.properties.putAll(properties);
+		return s;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the key isn't part of a scenario
+	 */
+	public void set(String key, String value) {
+		if(!KEYS.contains(key) && !isElevatorKey(key)) throw new IllegalArgumentException("Unknown scenario setting: " + key);
+		properties.setProperty(key, value);
+	}
+
+	private static boolean isElevatorKey(String key) {
+		String[] parts = key.split("\\.");
+		return parts.length == 3 && parts[0].equals("elevator") && parts[1].matches("\\d+") && ELEVATOR_KEYS.contains(parts[2]);
+	}
+
+	/**
+	 * Whether any elevator has settings of its own.
+	 */
+	public boolean isHeterogeneous() {
+		for(String key : properties.stringPropertyNames()) if(isElevatorKey(key)) return true;
+		return false;
+	}
+
+	/**
+	 * Set from a "key=value" string, as given on the command line.
+	 */
+	public void set(String assignment) {
+		int i = assignment.indexOf('=');
+		if(i < 1) throw new IllegalArgumentException("Expected key=value: " + assignment);
+		set(assignment.substring(0, i).trim(), assignment.substring(i + 1).trim());
+	}
+
+	public String get(String key) {
+		return properties.getProperty(key);
+	}
+
+	public int getInt(String key) {
+		return Integer.parseInt(get(key));
+	}
+
+	public long getLong(String key) {
+		return Long.parseLong(get(key));
+	}
+
+	public double getDouble(String key) {
+		return Double.parseDouble(get(key));
+	}
+
+	/**
+	 * Get every setting's key, in a fixed order.
+	 */
+	public TreeSet<String> getKeys() {
+		return new TreeSet<String>(properties.stringPropertyNames());
+	}
+
+	/**
+	 * Get every setting as "key=value" lines in key order, with numbers written the same way however they were given,
+	 * so that scenarios that describe the same run give the same text.
+	 */
+	public String getNormalized() {
+		StringBuilder b = new StringBuilder();
+		for(String key : getKeys()) {
+			String value = get(key);
+			try {
+				value = new BigDecimal(value).stripTrailingZeros().toPlainString();
+			}
+			catch(NumberFormatException e) {
+				// Not a number
+			}
+			b.append(key).append('=').append(value).append('\n');
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Create the simulation this scenario describes, ready to step.
+	 */
+	public SimulationBase build() {
+		SimulationBase s = new SimulationBase(getInt("elevators"), getInt("floors"), getLong("seed"));
+		s.setCapacity(getInt("capacity"));
+		s.setLoadingWaitTime(getInt("loadingWaitTime"));
+		s.setUpdateFrequency(getInt("updateFrequency"));
+		s.getSpawner().setSpawnInterval(getInt("spawnInterval"));
+		s.getSpawner().setSpawnProbability(getDouble("spawnProbability"));
+		s.getSpawner().setGroupMemberProbability(getDouble("groupMemberProbability"));
+		if(getDouble("parking") > 0) s.setParking(getDouble("parking") * 1000);
+		if(isHeterogeneous()) configureElevators(s);
+		return s;
+	}
+
+	/**
+	 * Give each elevator its own settings.
+	 * @throws IllegalArgumentException if an elevator doesn't exist, or some floor has no elevator that also stops at the lobby, where every trip starts or ends
+	 */
+	private void configureElevators(SimulationBase s) {
+		int elevators = getInt("elevators"), floors = getInt("floors");
+		for(String key : properties.stringPropertyNames()) {
+			if(isElevatorKey(key) && Integer.parseInt(key.split("\\.")[1]) >= elevators) throw new IllegalArgumentException("No such elevator: " + key);
+		}
+		Elevator defaults = new Elevator();
+		BitSet reached = new BitSet();
+		for(int i = 0; i < elevators; i ++) {
+			String prefix = "elevator." + i + ".";
+			int capacity = get(prefix + "capacity") != null ? getInt(prefix + "capacity") : getInt("capacity");
+			double acceleration = get(prefix + "acceleration") != null ? getDouble(prefix + "acceleration") : defaults.getAcceleration();
+			double minSpeed = get(prefix + "minSpeed") != null ? getDouble(prefix + "minSpeed") : defaults.getMinSpeed();
+			BitSet served = get(prefix + "floors") != null ? Elevator.parseFloors(get(prefix + "floors")) : null;
+			if(served == null) reached.set(0, floors);
+			else if(served.get(0)) reached.or(served);
+			s.setElevator(i, capacity, acceleration, minSpeed, served);
+		}
+		if(reached.nextClearBit(0) < floors) throw new IllegalArgumentException("No elevator stops at both the lobby and floor " + reached.nextClearBit(0));
+	}
+
+	/**
+	 * Run the scenario headless from start to finish. Statistics are only kept after the warm-up.
+	 * @param trips told about each trip completed after the warm-up, or null
+	 * @throws InterruptedException if the thread is interrupted, which cancels the run
+	 */
+	public Statistics run(TripListener trips) throws InterruptedException {
+		SimulationBase s = build();
+		RolloutDispatcher dispatcher = null;
+		if(get("dispatch").equals("rollout")) {
+			dispatcher = new RolloutDispatcher();
+			dispatcher.setBudget(0); // Wait for every rollout, so that runs are repeatable
+			s.setDispatcher(dispatcher);
+		}
+		else if(get("dispatch").equals("table")) {
+			try {
+				s.setPolicyTable(PolicyTable.load(new File(get("policy"))));
+			}
+			catch(IOException e) {
+				throw new IllegalArgumentException("Can't read the policy table " + get("policy"), e);
+			}
+		}
+		else if(!get("dispatch").equals("heuristic")) throw new IllegalArgumentException("Unknown dispatch strategy: " + get("dispatch"));
+		try {
+			double warmup = getDouble("warmup") * 1000;
+			s.runUntil(warmup);
+			s.getStatistics().clear();
+			s.setTripListener(trips);
+			s.runUntil(warmup + getDouble("duration") * 1000);
+			if(Thread.interrupted()) throw new InterruptedException();
+		}
+		finally {
+			if(dispatcher != null) dispatcher.shutdown();
+		}
+		return s.getStatistics();
+	}
+
+}
@@ -0,0 +1,1487 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * The simulation model itself. Depends only on the core Java library, so it can run headless.
+ * Settings changes, calls and arriving people may come from any thread, and take effect at the start of the next update.
+ */
+public class SimulationBase implements Runnable {
+
+	private Elevator[] elevators;
+	private int floors;
+	private final int MIN_LOADING_WAIT_TIME = 0, MAX_LOADING_WAIT_TIME = 30000, DEFAULT_LOADING_WAIT_TIME = 3000;
+	private final int MIN_UPDATE_FREQUENCY = 500, MAX_UPDATE_FREQUENCY = 1, DEFAULT_UPDATE_FREQUENCY = 20;
+	private final int MIN_SPAWN_INTERVAL = -1 /* No spawn */, MAX_SPAWN_INTERVAL = 500, DEFAULT_SPAWN_INTERVAL = 100;
+	private final int MAX_TIME_SCALE_FACTOR = 5; // Fastest speed = 2 ^ n, slowest 2 ^ -n
+	private final double MIN_SPAWN_PROBABILITY = 0, MAX_SPAWN_PROBABILITY = .99, DEFAULT_SPAWN_PROBABILITY = .05;
+	private final double MIN_GROUP_MEMBER_PROBABILITY = 0, MAX_GROUP_MEMBER_PROBABILITY = .99, DEFAULT_GROUP_MEMBER_PROBABILITY = .5;
+	private final double MIN_TIME_SCALE = Math.pow(2, -MAX_TIME_SCALE_FACTOR), MAX_TIME_SCALE = Math.pow(2, MAX_TIME_SCALE_FACTOR), DEFAULT_TIME_SCALE = 1;
+	private final int CHECKSUM_INTERVAL = 50; // Updates between state checksums in the event log
+	private static final int SNAPSHOT_MAGIC = 0x454C5633; // "ELV3"
+	private Thread engine;
+	private volatile boolean running = false;
+	private AtomicReference<Frame> frame = new AtomicReference<Frame>();
+	private long seed;
+	private SimulationRandom random;
+	private long tick = 0; // Number of updates so far
+	private double time = 0; // Simulation ms so far
+	private EventLog log;
+	private ConcurrentLinkedQueue<Runnable> inputs = new ConcurrentLinkedQueue<Runnable>(); // From any thread, applied at the start of the next update
+	private Scheduler scheduler = new Scheduler();
+	private Spawner spawner = new Spawner();
+	private Parking parking = new Parking();
+	private ArrayList<FloorQueue> people = new ArrayList<FloorQueue>();
+	private RolloutDispatcher dispatcher;
+	private PolicyTable policy; // Consulted before the heuristic, or null
+	private Statistics statistics = new Statistics();
+	private TripListener tripListener;
+	private PhasedTick phasedTick; // Or null to update on the calling thread
+	private ArrayList<Person> boarding = new ArrayList<Person>();
+	private BitSet active = new BitSet(); // Elevators that may have something to do this update
+	private int[] restingFloor, firstResting, nextResting, previousResting; // Where each inactive elevator rests, and linked lists of them per floor
+	private BitSet[] servedBy; // The elevators that stop at each floor
+	private long framePeriod = 0, nextFrame; // Real ns between frames published while running headless, or 0 for none
+	private int updateFrequency = DEFAULT_UPDATE_FREQUENCY;
+	private double timeScale = DEFAULT_TIME_SCALE; // Ratio of simulation time to real time
+	
+	public SimulationBase(int numElevators, int floors) {
+		this(numElevators, floors, new SimulationRandom().nextLong());
+	}
+	
+	/**
+	 * @param seed the seed for every random choice the simulation makes. The same seed and inputs give the same run.
+	 */
+	public SimulationBase(int numElevators, int floors, long seed) {
+		this.seed = seed;
+		random = new SimulationRandom(seed);
+		elevators = new Elevator[numElevators];
+		for(int i = 0; i < numElevators; i ++) {
+			elevators[i] = new Elevator(new SimulationRandom(random.nextLong()));
+			elevators[i].calibrateTimeScale((double)DEFAULT_UPDATE_FREQUENCY / 1000);
+			elevators[i].setWaitTime(DEFAULT_LOADING_WAIT_TIME);
+		}
+		this.floors = floors;
+		for(int i = 0; i < floors; i ++) people.add(new FloorQueue());
+		spawner.spawnInterval = DEFAULT_SPAWN_INTERVAL;
+		spawner.spawnProbability = DEFAULT_SPAWN_PROBABILITY;
+		spawner.groupMemberProbability = DEFAULT_GROUP_MEMBER_PROBABILITY;
+		watchElevators();
+		publishFrame();
+	}
+	
+	/**
+	 * Create a fork of a simulation. Floor queues are shared until either side changes them.
+	 */
+	private SimulationBase(SimulationBase s) {
+		seed = s.seed;
+		random = new SimulationRandom();
+		random.setState(s.random.getState());
+		tick = s.tick;
+		time = s.time;
+		floors = s.floors;
+		updateFrequency = s.updateFrequency;
+		timeScale = s.timeScale;
+		statistics = s.statistics.copy();
+		elevators = new Elevator[s.elevators.length];
+		for(int i = 0; i < elevators.length; i ++) elevators[i] = s.elevators[i].copy();
+		for(FloorQueue floor : s.people) people.add(floor.fork());
+		spawner.count = s.spawner.count;
+		spawner.spawnInterval = s.spawner.spawnInterval;
+		spawner.sinceLastSpawn = s.spawner.sinceLastSpawn;
+		spawner.spawnProbability = s.spawner.spawnProbability;
+		spawner.groupMemberProbability = s.spawner.groupMemberProbability;
+		parking.copy(s.parking);
+		policy = s.policy;
+		watchElevators();
+	}
+	
+	/**
+	 * Get an independent copy of the simulation to explore a possible future with.
+	 * The fork has no event log or dispatcher, and is cheap: floor queues are copied only when changed.
+	 */
+	public SimulationBase fork() {
+		return new SimulationBase(this);
+	}
+	
+	/**
+	 * Start or resume the simulation on its own thread, in real time.
+	 */
+	public void run() {
+		if(running) return;
+		running = true;
+		engine = new Thread(new Engine(), "simulation");
+		engine.setDaemon(true);
+		engine.start();
+	}
+	
+	/**
+	 * Stop the simulation thread, after any update in progress.
+	 */
+	public void pause() {
+		if(!running) return;
+		running = false;
+		LockSupport.unpark(engine);
+		if(Thread.currentThread() == engine) return;
+		try {
+			engine.join();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Get the picture of the simulation after its latest update. Safe to call from any thread.
+	 */
+	public Frame getFrame() {
+		return frame.get();
+	}
+	
+	private void publishFrame() {
+		double[] positions = new double[elevators.length];
+		String[] statuses = new String[elevators.length];
+		int[][] occupants = new int[elevators.length][];
+		for(int i = 0; i < elevators.length; i ++) {
+			positions[i] = elevators[i].getPosition();
+			statuses[i] = elevators[i].getStatus();
+			occupants[i] = new int[elevators[i].getOccupants().size()];
+			int j = 0;
+			for(Person p : elevators[i].getOccupants()) occupants[i][j ++] = p.getDestination();
+		}
+		int[] queueLengths = new int[floors];
+		for(int i = 0; i < floors; i ++) queueLengths[i] = people.get(i).size();
+		frame.set(new Frame(tick, time, System.nanoTime(), positions, statuses, occupants, queueLengths));
+	}
+	
+	/**
+	 * Advance the simulation by one update.
+	 */
+	public void step() {
+		applyInputs();
+		tick ++;
+		time += updateFrequency * timeScale;
+		spawner.update(updateFrequency * timeScale);
+		parking.update();
+		if(phasedTick != null) phasedTick.step();
+		else {
+			
+			// Elevators left out are resting on floors with nobody waiting, so updating or loading them would do nothing
+			for(int i = active.nextSetBit(0); i >= 0; i = active.nextSetBit(i + 1)) {
+				elevators[i].update();
+				if(!elevators[i].getArrivals().isEmpty()) deliver(i);
+				if(elevators[i].getSpeed() == 0) {
+					load(elevators[i], boarding);
+					for(Person p : boarding) statistics.boarded(p);
+					boarding.clear();
+				}
+				if(elevators[i].isIdle() && people.get((int)elevators[i].getPosition()).isEmpty()) rest(i);
+			}
+		}
+		if(tick % CHECKSUM_INTERVAL == 0 && log != null) record("state", Long.toHexString(getStateHash()));
+	}
+	
+	/**
+	 * Apply the inputs given since the last update, in the order they were given. Inputs are settings changes, calls and people arriving,
+	 * from any thread; they wait in a lock-free queue so that the threads giving them never block or race with the simulation.
+	 * Called at the start of each update. Only the thread that steps the simulation may call it.
+	 */
+	public void applyInputs() {
+		Runnable input;
+		while((input = inputs.poll()) != null) input.run();
+	}
+	
+	/**
+	 * Split each update across worker threads, for very large fleets. Runs are the same, bit for bit, however many threads are used.
+	 * Only while the simulation isn't running on its own thread, since it shuts down the threads an update may be using.
+	 * @param threads how many threads to use, or 1 to update on the calling thread
+	 */
+	public void setTickThreads(int threads) {
+		if(running) throw new IllegalStateException("Pause the simulation before changing how it updates");
+		if(phasedTick != null) phasedTick.shutdown();
+		phasedTick = threads > 1 ? new ParallelTick(threads) : null;
+	}
+	
+	/**
+	 * Run each elevator as an actor with its own mailbox, as another way to update very large fleets.
+	 * Runs are the same, bit for bit, as updating on the calling thread.
+	 * Only while the simulation isn't running on its own thread, since it shuts down the threads an update may be using.
+	 * @param actors whether to use actors, or to update on the calling thread
+	 */
+	public void setActors(boolean actors) {
+		if(running) throw new IllegalStateException("Pause the simulation before changing how it updates");
+		if(phasedTick != null) phasedTick.shutdown();
+		phasedTick = actors ? new ActorTick() : null;
+	}
+	
+	/**
+	 * Run headless, as fast as possible, until the given simulation time. Stops early if the thread is interrupted.
+	 * @param until simulation time in ms
+	 */
+	public void runUntil(double until) {
+		runUntil(until, null);
+	}
+	
+	/**
+	 * Run headless, as fast as possible, until the given simulation time or until a condition holds after an update, e.g. to skip to the interesting part of a run.
+	 * Stops early if the thread is interrupted.
+	 * @param until simulation time in ms
+	 * @param stop the condition, or null for none
+	 * @return whether the condition was met
+	 */
+	public boolean runUntil(double until, Predicate<SimulationBase> stop) {
+		boolean met = false;
+		while(time < until && !Thread.currentThread().isInterrupted()) {
+			if(stop == null) skipIdle(until); // A condition may change while the clock runs, e.g. how long people have waited
+			if(time < until) step();
+			if(framePeriod > 0 && System.nanoTime() - nextFrame >= 0) {
+				publishFrame();
+				nextFrame = System.nanoTime() + framePeriod;
+			}
+			if(stop != null && stop.test(this)) {
+				met = true;
+				break;
+			}
+		}
+		if(framePeriod > 0) publishFrame();
+		return met;
+	}
+	
+	/**
+	 * Get a condition for runUntil that holds once more than n people wait on one floor.
+	 */
+	public static Predicate<SimulationBase> queueAbove(int n) {
+		return s -> s.getLongestQueue() > n;
+	}
+	
+	/**
+	 * Get a condition for runUntil that holds once someone has waited for an elevator for more than the given time.
+	 * @param t simulation ms
+	 */
+	public static Predicate<SimulationBase> waitAbove(double t) {
+		return s -> s.getLongestWait() > t;
+	}
+	
+	/**
+	 * Get the most people waiting on any one floor.
+	 */
+	public int getLongestQueue() {
+		int longest = 0;
+		for(FloorQueue floor : people) longest = Math.max(longest, floor.size());
+		return longest;
+	}
+	
+	/**
+	 * Get how long the first person in line on any floor has been waiting, in simulation ms, or 0 if nobody is waiting.
+	 * People join the queues in the order they arrive, so the first in line is the one who has waited longest there.
+	 */
+	public double getLongestWait() {
+		double longest = 0;
+		for(FloorQueue floor : people) if(!floor.isEmpty()) longest = Math.max(longest, time - floor.iterator().next().getTimeCreated());
+		return longest;
+	}
+	
+	/**
+	 * Publish frames while running headless, so that the run can be watched, e.g. through a StateServer.
+	 * Running in real time publishes a frame after every update regardless.
+	 * @param framesPerSecond the most frames to publish per second of real time, or 0 for none
+	 */
+	public void setFrameRate(int framesPerSecond) {
+		framePeriod = framesPerSecond > 0 ? 1000000000L / framesPerSecond : 0;
+	}
+	
+	/**
+	 * While every elevator is resting and nothing is due, pass updates with only the clock running, as step() would.
+	 */
+	private void skipIdle(double until) {
+		if(!active.isEmpty() || phasedTick != null || !inputs.isEmpty()) return;
+		double elapsed = updateFrequency * timeScale;
+		while(time < until && (spawner.spawnInterval < 1 || spawner.sinceLastSpawn + elapsed < spawner.spawnInterval) && !parking.isDue(time + elapsed)) {
+			if((tick + 1) % CHECKSUM_INTERVAL == 0 && log != null) return; // Let step() record the checksum
+			tick ++;
+			time += elapsed;
+			if(spawner.spawnInterval >= 1) spawner.sinceLastSpawn += elapsed;
+		}
+	}
+	
+	/**
+	 * Make every elevator active, and have each tell the simulation when it is given somewhere to go.
+	 */
+	private void watchElevators() {
+		restingFloor = new int[elevators.length];
+		nextResting = new int[elevators.length];
+		previousResting = new int[elevators.length];
+		firstResting = new int[floors];
+		Arrays.fill(restingFloor, -1);
+		Arrays.fill(firstResting, -1);
+		active.set(0, elevators.length);
+		for(int i = 0; i < elevators.length; i ++) {
+			final int elevator = i;
+			elevators[i].setWakeListener(() -> wake(elevator));
+		}
+		findServedFloors();
+	}
+	
+	/**
+	 * Work out which elevators stop at each floor, so the scheduler can pick candidates with a few word operations.
+	 */
+	private void findServedFloors() {
+		servedBy = new BitSet[floors];
+		for(int f = 0; f < floors; f ++) {
+			servedBy[f] = new BitSet(elevators.length);
+			for(int i = 0; i < elevators.length; i ++) if(elevators[i].serves(f)) servedBy[f].set(i);
+		}
+	}
+	
+	/**
+	 * Get the elevators that stop at a floor, as a set of indexes.
+	 */
+	public BitSet getElevatorsServing(int floor) {
+		return (BitSet)servedBy[floor].clone();
+	}
+	
+	/**
+	 * Leave an idle elevator out of updates until it is given a destination or someone arrives on its floor.
+	 */
+	private void rest(int i) {
+		int floor = (int)elevators[i].getPosition();
+		active.clear(i);
+		restingFloor[i] = floor;
+		previousResting[i] = -1;
+		nextResting[i] = firstResting[floor];
+		if(firstResting[floor] >= 0) previousResting[firstResting[floor]] = i;
+		firstResting[floor] = i;
+	}
+	
+	private void wake(int i) {
+		int floor = restingFloor[i];
+		if(floor < 0) return;
+		if(previousResting[i] >= 0) nextResting[previousResting[i]] = nextResting[i];
+		else firstResting[floor] = nextResting[i];
+		if(nextResting[i] >= 0) previousResting[nextResting[i]] = previousResting[i];
+		restingFloor[i] = -1;
+		active.set(i);
+	}
+	
+	/**
+	 * Wake the elevators resting on a floor where someone has arrived.
+	 */
+	private void wakeFloor(int floor) {
+		while(firstResting[floor] >= 0) wake(firstResting[floor]);
+	}
+	
+	/**
+	 * Get a checksum of everything that changes as the simulation runs.
+	 */
+	public long getStateHash() {
+		long h = 17;
+		for(Elevator e : elevators) {
+			h = 31 * h + Double.doubleToLongBits(e.getPosition());
+			h = 31 * h + Double.doubleToLongBits(e.getSpeed());
+			h = 31 * h + e.getStatus().hashCode();
+			h = 31 * h + e.getDestinations().hashCode();
+			h = 31 * h + e.getOccupants().size();
+		}
+		for(FloorQueue floor : people) h = 31 * h + floor.size();
+		return h;
+	}
+	
+	/**
+	 * Record all inputs, arrivals and periodic state checksums from now on. Attach before the simulation starts so that the log can be replayed.
+	 */
+	public void setEventLog(EventLog l) {
+		log = l;
+		record("session", elevators.length + " " + floors + " " + seed);
+	}
+	
+	private void record(String type, String data) {
+		if(log != null) log.record(tick, type, data);
+	}
+	
+	/**
+	 * Write everything needed to resume the simulation exactly where it is: elevators, floor queues, spawner, settings and random state.
+	 * The event log is not included.
+	 */
+	public void writeState(DataOutputStream out) throws IOException {
+		out.writeInt(SNAPSHOT_MAGIC);
+		out.writeInt(elevators.length);
+		out.writeInt(floors);
+		out.writeLong(seed);
+		out.writeLong(tick);
+		out.writeDouble(time);
+		out.writeInt(updateFrequency);
+		out.writeDouble(timeScale);
+		out.writeLong(random.getState());
+		statistics.writeState(out);
+		out.writeInt(spawner.count);
+		out.writeInt(spawner.spawnInterval);
+		out.writeDouble(spawner.sinceLastSpawn);
+		out.writeDouble(spawner.spawnProbability);
+		out.writeDouble(spawner.groupMemberProbability);
+		parking.writeState(out);
+		for(FloorQueue floor : people) {
+			out.writeInt(floor.size());
+			for(Person p : floor) p.writeState(out);
+		}
+		for(Elevator e : elevators) e.writeState(out);
+	}
+	
+	/**
+	 * Create a simulation from a state written by writeState.
+	 */
+	public static SimulationBase readState(DataInputStream in) throws IOException {
+		if(in.readInt() != SNAPSHOT_MAGIC) throw new IOException("Not a simulation snapshot");
+		int numElevators = in.readInt(), floors = in.readInt();
+		SimulationBase s = new SimulationBase(numElevators, floors, in.readLong());
+		s.tick = in.readLong();
+		s.time = in.readDouble();
+		s.updateFrequency = in.readInt();
+		s.timeScale = in.readDouble();
+		s.random.setState(in.readLong());
+		s.statistics = Statistics.readState(in);
+		s.spawner.count = in.readInt();
+		s.spawner.spawnInterval = in.readInt();
+		s.spawner.sinceLastSpawn = in.readDouble();
+		s.spawner.spawnProbability = in.readDouble();
+		s.spawner.groupMemberProbability = in.readDouble();
+		s.parking.readState(in);
+		for(FloorQueue floor : s.people) {
+			for(int i = in.readInt(); i > 0; i --) floor.add(Person.readState(in));
+		}
+		for(Elevator e : s.elevators) e.readState(in);
+		s.findServedFloors();
+		s.publishFrame();
+		return s;
+	}
+	
+	/**
+	 * Take a snapshot of the simulation, e.g. to warm-start several experiments from the same point.
+	 */
+	public byte[] snapshot() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			DataOutputStream out = new DataOutputStream(bytes);
+			writeState(out);
+			out.flush();
+		}
+		catch(IOException e) {
+			throw new RuntimeException(e); // Can't happen in memory
+		}
+		return bytes.toByteArray();
+	}
+	
+	public static SimulationBase restore(byte[] snapshot) {
+		try {
+			return readState(new DataInputStream(new ByteArrayInputStream(snapshot)));
+		}
+		catch(IOException e) {
+			throw new IllegalArgumentException("Corrupt snapshot", e);
+		}
+	}
+	
+	public void save(File f) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+		try {
+			writeState(out);
+		}
+		finally {
+			out.close();
+		}
+	}
+	
+	public static SimulationBase load(File f) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+		try {
+			return readState(in);
+		}
+		finally {
+			in.close();
+		}
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+	
+	public long getTick() {
+		return tick;
+	}
+	
+	/**
+	 * Get simulation time in ms.
+	 */
+	public double getTime() {
+		return time;
+	}
+	
+	/**
+	 * Get the average wait for an elevator in seconds, of everyone who has boarded.
+	 */
+	public double getAverageWaitTime() {
+		return statistics.getMeanWaitTime() / 1000;
+	}
+	
+	public Statistics getStatistics() {
+		return statistics;
+	}
+	
+	/**
+	 * Be told about every trip as it is completed, from the next update on.
+	 */
+	public void setTripListener(TripListener l) {
+		inputs.add(() -> tripListener = l);
+	}
+	
+	/**
+	 * Get the total simulation ms waited so far, by everyone who has boarded and everyone still waiting.
+	 */
+	public double getTotalWaitTime() {
+		double total = statistics.getTotalWaitTime();
+		for(FloorQueue floor : people) for(Person p : floor) total += time - p.getTimeCreated();
+		return total;
+	}
+	
+	/**
+	 * Choose elevators by simulating each candidate's future instead of with the built-in heuristic, from the next update on.
+	 * @param d the dispatcher, or null to go back to the heuristic
+	 */
+	public void setDispatcher(RolloutDispatcher d) {
+		inputs.add(() -> dispatcher = d);
+	}
+	
+	/**
+	 * Use a precompiled table for hall calls, with the heuristic deciding states the table doesn't cover, from the next update on.
+	 * @param t the table, or null to use only the heuristic
+	 */
+	public void setPolicyTable(PolicyTable t) {
+		inputs.add(() -> policy = t);
+	}
+	
+	/**
+	 * Keep the people waiting on each floor outside the Java heap from the next update on, for long overload runs. Runs are the same either way.
+	 * Forks and restored snapshots keep their queues on the heap.
+	 * @param store where to keep them, which must not be shared with another simulation
+	 */
+	public void setOffHeapQueues(OffHeapQueues store) {
+		inputs.add(() -> {
+			for(int f = 0; f < floors; f ++) {
+				FloorQueue queue = store.newQueue();
+				for(Person p : people.get(f)) queue.add(p);
+				people.set(f, queue);
+			}
+		});
+	}
+	
+	public Elevator[] getElevatorList() {
+		return elevators;
+	}
+	
+	FloorQueue getPeopleOnFloor(int f) {
+		return people.get(f);
+	}
+
+	public int getNumberOfFloors() {
+		return floors;
+	}
+	
+	public int getNumberOfPeopleOnFloor(int f) {
+		return people.get(f).size();
+	}
+	
+	public int getMinLoadingWaitTime() {
+		return MIN_LOADING_WAIT_TIME;
+	}
+
+	public int getMaxLoadingWaitTime() {
+		return MAX_LOADING_WAIT_TIME;
+	}
+	
+	public int getDefaultLoadingWaitTime() {
+		return DEFAULT_LOADING_WAIT_TIME;
+	}
+	
+	public void setCapacity(int c) {
+		inputs.add(() -> {
+			record("param", "capacity " + c);
+			for(Elevator e : elevators) e.setCapacity(c);
+		});
+	}
+	
+	/**
+	 * Give one elevator its own capacity, kinematics and floors, for fleets that mix local, express and service cars.
+	 * @param acceleration floors per second ^ 2 (simulation time)
+	 * @param minSpeed floors per second (simulation time)
+	 * @param served the floors it stops at, or null for every floor
+	 */
+	public void setElevator(int i, int capacity, double acceleration, double minSpeed, BitSet served) {
+		BitSet floors = served == null ? null : (BitSet)served.clone();
+		inputs.add(() -> {
+			record("param", "elevator " + i + " " + capacity + " " + acceleration + " " + minSpeed + " " + Elevator.formatFloors(floors));
+			elevators[i].setCapacity(capacity);
+			elevators[i].setAcceleration(acceleration);
+			elevators[i].setMinSpeed(minSpeed);
+			elevators[i].setServedFloors(floors);
+			findServedFloors();
+		});
+	}
+	
+	public void setLoadingWaitTime(int t) {
+		inputs.add(() -> {
+			record("param", "loadingWaitTime " + t);
+			for(Elevator e : elevators) e.setWaitTime(t);
+		});
+	}
+	
+	public int getMinUpdateFrequency() {
+		return MIN_UPDATE_FREQUENCY;
+	}
+	
+	public int getMaxUpdateFrequency() {
+		return MAX_UPDATE_FREQUENCY;
+	}
+	
+	public int getDefaultUpdateFrequency() {
+		return DEFAULT_UPDATE_FREQUENCY;
+	}
+	
+	public int getUpdateFrequency() {
+		return updateFrequency;
+	}
+	
+	public void setUpdateFrequency(int f) {
+		inputs.add(() -> {
+			record("param", "updateFrequency " + f);
+			updateFrequency = f;
+			for(Elevator e : elevators) e.calibrateTimeScale((double)f / 1000);
+		});
+	}
+	
+	/**
+	 * Reposition idle elevators to the floors most likely to call next, going by recent arrivals.
+	 * @param timeConstant simulation ms over which arrival rates are averaged, or 0 to leave idle elevators where they stop
+	 */
+	public void setParking(double timeConstant) {
+		inputs.add(() -> {
+			record("param", "parking " + timeConstant);
+			parking.setTimeConstant(timeConstant);
+		});
+	}
+	
+	/**
+	 * Get the recent rate of calls from a floor, in calls per second of simulation time. Only estimated while parking is on.
+	 */
+	public double getArrivalRate(int floor, String direction) {
+		return parking.getRate(floor, direction.equals("up") ? 0 : 1) * 1000;
+	}
+	
+	/**
+	 * Get how many times an idle elevator has been sent to park.
+	 */
+	public long getNumberParked() {
+		return parking.moves;
+	}
+	
+	public int getMinSpawnInterval() {
+		return MIN_SPAWN_INTERVAL;
+	}
+	
+	public int getMaxSpawnInterval() {
+		return MAX_SPAWN_INTERVAL;
+	}
+	
+	public int getDefaultSpawnInterval() {
+		return DEFAULT_SPAWN_INTERVAL;
+	}
+	
+	public double getMinSpawnProbability() {
+		return MIN_SPAWN_PROBABILITY;
+	}
+	
+	public double getMaxSpawnProbability() {
+		return MAX_SPAWN_PROBABILITY;
+	}
+	
+	public double getDefaultSpawnProbability() {
+		return DEFAULT_SPAWN_PROBABILITY;
+	}
+	
+	public double getMinGroupMemberProbability() {
+		return MIN_GROUP_MEMBER_PROBABILITY;
+	}
+	
+	public double getMaxGroupMemberProbability() {
+		return MAX_GROUP_MEMBER_PROBABILITY;
+	}
+	
+	public double getDefaultGroupMemberProbability() {
+		return DEFAULT_GROUP_MEMBER_PROBABILITY;
+	}
+	
+	public double getMaxTimeScaleFactor() {
+		return MAX_TIME_SCALE_FACTOR;
+	}
+	
+	public double getMinTimeScale() {
+		return MIN_TIME_SCALE;
+	}
+	
+	public double getMaxTimeScale() {
+		return MAX_TIME_SCALE;
+	}
+	
+	public double getDefaultTimeScale() {
+		return DEFAULT_TIME_SCALE;
+	}
+	
+	/**
+	 * Adjust the simulation time : real time ratio.
+	 * @param t ratio of sim time to real time
+	 */
+	public void setTimeScale(double t) {
+		inputs.add(() -> {
+			record("param", "timeScale " + t);
+			for(Elevator e : elevators) e.setTimeScale(t);
+			timeScale = t;
+		});
+	}
+	
+	public Spawner getSpawner() {
+		return spawner;
+	}
+	
+	/**
+	 * Ask the Scheduler to send an elevator to a floor.
+	 * @param f the floor
+	 */
+	public void callElevatorToFloor(int f) {
+		inputs.add(() -> {
+			record("call", String.valueOf(f));
+			scheduler.callBestElevator(f);
+		});
+	}
+
+	/**
+	 * Ask the Scheduler to send an elevator going in the specified direction to a floor.
+	 * @param f the floor
+	 * @param direction "up" or "down"
+	 */
+	public void callElevatorToFloor(int f, String direction) {
+		inputs.add(() -> {
+			record("call", f + " " + direction);
+			scheduler.callBestElevator(f, direction);
+		});
+	}
+	
+	/**
+	 * Add someone who arrives from outside the simulation, such as from another elevator bank, and call an elevator for them.
+	 * @param p the person, with origin and destination on this simulation's floors
+	 */
+	public void addPerson(Person p) {
+		inputs.add(() -> {
+			record("person", p.getOrigin() + " " + p.getDestination() + " " + p.getTimeCreated());
+			people.get(p.getOrigin()).add(p);
+			wakeFloor(p.getOrigin());
+			statistics.arrived(p);
+			parking.called(p.getOrigin(), p.getOrigin() < p.getDestination());
+			scheduler.callBestElevator(p.getOrigin(), p.getDestination());
+		});
+	}
+	
+	/**
+	 * Count the people who just got out of an elevator.
+	 * @param i the elevator's index
+	 */
+	private void deliver(int i) {
+		for(Person p : elevators[i].getArrivals()) {
+			statistics.delivered(p, (long)time);
+			if(tripListener != null) tripListener.tripCompleted(p, i, (long)time);
+		}
+		elevators[i].getArrivals().clear();
+	}
+	
+	/**
+	 * Move people from the building to an elevator.
+	 * @param e the elevator to load
+	 * @param boarded gets everyone who boarded, to be counted in the statistics by the caller
+	 */
+	private void load(Elevator e, ArrayList<Person> boarded) {
+		int currentFloor = (int)e.getPosition();
+		
+		// While we have people waiting on the elevator's current floor and space in the elevator, move them to the elevator
+		if(people.get(currentFloor).isEmpty() || e.getOccupants().size() >= e.getCapacity()) return;
+		Iterator<Person> iter = people.get(currentFloor).boardingIterator();
+		while(iter.hasNext() && e.getOccupants().size() < e.getCapacity()) {
+			Person p = iter.next();
+			if(!e.serves(p.getDestination())) continue;
+			if(e.getDirection() == null || (p.getDestination() > currentFloor && e.getDirection().equals("up")) || (p.getDestination() < currentFloor && e.getDirection().equals("down"))) {
+				iter.remove();
+				p = p.board((long)time);
+				e.addOccupant(p);
+				boarded.add(p);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Updates the elevators concurrently, in phases that give exactly the same result as updating them one after another:
+	 * first every car moves on its own, then people board floor by floor with the cars on each floor taking turns in index order,
+	 * then arrivals and boardings are counted in index order. A car's update only touches that car, and boarding only touches its own floor,
+	 * so only the order of the statistics matters, and that is kept.
+	 */
+	private abstract class PhasedTick {
+		
+		protected ArrayList<ArrayList<Person>> boarded;
+		protected int[] firstCar, nextCar; // Linked lists of stopped cars on each floor, in index order
+		protected int[] busyFloors;
+		protected int numBusyFloors;
+		
+		public PhasedTick() {
+			boarded = new ArrayList<ArrayList<Person>>(elevators.length);
+			for(int i = 0; i < elevators.length; i ++) boarded.add(new ArrayList<Person>());
+			firstCar = new int[floors];
+			nextCar = new int[elevators.length];
+			busyFloors = new int[floors];
+		}
+		
+		public void step() {
+			move();
+			
+			// Queue each stopped car behind the others on its floor
+			Arrays.fill(firstCar, -1);
+			numBusyFloors = 0;
+			for(int i = elevators.length - 1; i >= 0; i --) {
+				nextCar[i] = -1;
+				if(elevators[i].getSpeed() != 0) continue;
+				int floor = (int)elevators[i].getPosition();
+				if(firstCar[floor] < 0) busyFloors[numBusyFloors ++] = floor;
+				else nextCar[i] = firstCar[floor];
+				firstCar[floor] = i;
+			}
+			board();
+			
+			for(int i = 0; i < elevators.length; i ++) {
+				if(!elevators[i].getArrivals().isEmpty()) deliver(i);
+				for(Person p : boarded.get(i)) statistics.boarded(p);
+				boarded.get(i).clear();
+			}
+		}
+		
+		/**
+		 * Update every elevator, and return once all are done.
+		 */
+		protected abstract void move();
+		
+		/**
+		 * Load the stopped cars on each busy floor in turn, and return once all are done.
+		 */
+		protected abstract void board();
+		
+		/**
+		 * Send an elevator to a floor between updates.
+		 */
+		public void goTo(Elevator e, int floor) {
+			e.goTo(floor);
+		}
+		
+		public abstract void shutdown();
+		
+	}
+	
+	/**
+	 * Runs the phases on a fixed pool of threads, each taking cars or floors from a shared counter.
+	 */
+	private class ParallelTick extends PhasedTick {
+		
+		private static final int BATCH = 64; // Cars per unit of work in the first phase
+		private ExecutorService workers;
+		private ArrayList<Callable<Void>> moveTasks = new ArrayList<Callable<Void>>(), boardTasks = new ArrayList<Callable<Void>>();
+		private AtomicInteger next = new AtomicInteger();
+		
+		public ParallelTick(int threads) {
+			workers = Executors.newFixedThreadPool(threads, r -> {
+				Thread t = new Thread(r, "tick");
+				t.setDaemon(true);
+				return t;
+			});
+			for(int i = 0; i < threads; i ++) {
+				moveTasks.add(() -> {
+					for(int b = next.getAndIncrement() * BATCH; b < elevators.length; b = next.getAndIncrement() * BATCH) {
+						for(int j = b; j < Math.min(b + BATCH, elevators.length); j ++) elevators[j].update();
+					}
+					return null;
+				});
+				boardTasks.add(() -> {
+					for(int f = next.getAndIncrement(); f < numBusyFloors; f = next.getAndIncrement()) {
+						for(int j = firstCar[busyFloors[f]]; j >= 0; j = nextCar[j]) load(elevators[j], boarded.get(j));
+					}
+					return null;
+				});
+			}
+		}
+		
+		protected void move() {
+			run(moveTasks);
+		}
+		
+		protected void board() {
+			run(boardTasks);
+		}
+		
+		/**
+		 * Run a phase to the end. An interrupt is passed on only once the phase is over, so an update is never left half done.
+		 */
+		private void run(ArrayList<Callable<Void>> tasks) {
+			next.set(0);
+			ArrayList<Future<Void>> results = new ArrayList<Future<Void>>();
+			for(Callable<Void> task : tasks) results.add(workers.submit(task));
+			boolean interrupted = false;
+			for(Future<Void> f : results) {
+				while(true) {
+					try {
+						f.get();
+						break;
+					}
+					catch(InterruptedException e) {
+						interrupted = true;
+					}
+					catch(ExecutionException e) {
+						throw new RuntimeException(e.getCause());
+					}
+				}
+			}
+			if(interrupted) Thread.currentThread().interrupt();
+		}
+		
+		public void shutdown() {
+			workers.shutdownNow();
+		}
+		
+	}
+	
+	/**
+	 * Runs each elevator as an actor: it owns its car, and only ever acts on messages from its mailbox, one at a time.
+	 * Ticks go to every actor at once. For boarding, each busy floor's queue is handed from car to car in index order,
+	 * each actor passing it to the next with a message. The dispatcher sends orders as messages too, and waits for them
+	 * to be taken so that its next choice sees them, as it would if it changed the car itself.
+	 * Actors run on virtual threads where the Java runtime has them, and on a work-stealing pool otherwise.
+	 */
+	private class ActorTick extends PhasedTick {
+		
+		private ExecutorService executor = newActorExecutor();
+		private Actor[] actors = new Actor[elevators.length];
+		private IdentityHashMap<Elevator, Actor> actorOf = new IdentityHashMap<Elevator, Actor>();
+		
+		public ActorTick() {
+			for(int i = 0; i < actors.length; i ++) {
+				actors[i] = new Actor(i);
+				actorOf.put(elevators[i], actors[i]);
+			}
+		}
+		
+		protected void move() {
+			CountDownLatch done = new CountDownLatch(actors.length);
+			for(Actor a : actors) {
+				a.send(() -> {
+					elevators[a.index].update();
+					done.countDown();
+				});
+			}
+			await(done);
+		}
+		
+		protected void board() {
+			CountDownLatch done = new CountDownLatch(numBusyFloors);
+			for(int f = 0; f < numBusyFloors; f ++) actors[firstCar[busyFloors[f]]].send(boarding(firstCar[busyFloors[f]], done));
+			await(done);
+		}
+		
+		/**
+		 * The message that lets a car load from its floor, then passes the floor on to the next car there.
+		 */
+		private Runnable boarding(int car, CountDownLatch done) {
+			return () -> {
+				load(elevators[car], boarded.get(car));
+				if(nextCar[car] >= 0) actors[nextCar[car]].send(boarding(nextCar[car], done));
+				else done.countDown();
+			};
+		}
+		
+		public void goTo(Elevator e, int floor) {
+			Actor a = actorOf.get(e);
+			if(a == null) {
+				e.goTo(floor); // Not one of the fleet
+				return;
+			}
+			CountDownLatch done = new CountDownLatch(1);
+			a.send(() -> {
+				e.goTo(floor);
+				done.countDown();
+			});
+			await(done);
+		}
+		
+		/**
+		 * Wait for every reply. An interrupt is passed on only once they are in, so an update is never left half done.
+		 */
+		private void await(CountDownLatch done) {
+			boolean interrupted = false;
+			while(true) {
+				try {
+					done.await();
+					break;
+				}
+				catch(InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if(interrupted) Thread.currentThread().interrupt();
+		}
+		
+		public void shutdown() {
+			executor.shutdownNow();
+		}
+		
+		private ExecutorService newActorExecutor() {
+			try {
+				return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			}
+			catch(ReflectiveOperationException e) {
+				return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+			}
+		}
+		
+		/**
+		 * One elevator's mailbox. Messages run in the order they were sent, never two at once.
+		 */
+		private class Actor implements Runnable {
+			
+			private int index;
+			private ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<Runnable>();
+			private AtomicBoolean scheduled = new AtomicBoolean();
+			
+			public Actor(int index) {
+				this.index = index;
+			}
+			
+			public void send(Runnable message) {
+				mailbox.add(message);
+				if(scheduled.compareAndSet(false, true)) executor.execute(this);
+			}
+			
+			public void run() {
+				do {
+					Runnable message;
+					while((message = mailbox.poll()) != null) message.run();
+					scheduled.set(false);
+				}
+				while(!mailbox.isEmpty() && scheduled.compareAndSet(false, true));
+			}
+			
+		}
+		
+	}
+	
+	/**
+	 * The core loop of the simulation. Updates the model once per update period and publishes a frame after each update.
+	 */
+	private class Engine implements Runnable {
+
+		public void run() {
+			long next = System.nanoTime();
+			while(running) {
+				
+				// Update spawner and elevators
+				step();
+				publishFrame();
+				
+				// Wait for the next update, without trying to catch up after falling far behind
+				next += updateFrequency * 1000000L;
+				long now = System.nanoTime();
+				if(next < now - updateFrequency * 1000000L) next = now;
+				while(running && (now = System.nanoTime()) < next) LockSupport.parkNanos(next - now);
+			}
+		}
+		
+	}
+	
+	/**
+	 * An algorithm that chooses which elevator responds to each call.
+	 * Only elevators that stop at the calling floor, and at the destination when it is known, are candidates.
+	 */
+	private class Scheduler {
+		
+		public void callBestElevator(int floor) {
+			if(dispatchByRollout(floor, null, servedBy[floor])) return;
+			Elevator e = getBestElevator(floor, servedBy[floor]);
+			if(e != null) order(e, floor);
+		}
+		
+		public void callBestElevator(int floor, String direction) {
+			callBestElevator(floor, direction, servedBy[floor]);
+		}
+		
+		/**
+		 * Call an elevator for someone whose destination is known.
+		 */
+		public void callBestElevator(int floor, int destination) {
+			BitSet candidates = (BitSet)servedBy[floor].clone();
+			candidates.and(servedBy[destination]);
+			callBestElevator(floor, floor < destination ? "up" : "down", candidates);
+		}
+		
+		private void callBestElevator(int floor, String direction, BitSet candidates) {
+			if(dispatchByRollout(floor, direction, candidates)) return;
+			Elevator e = getBestElevator(floor, direction, candidates);
+			if(e != null) order(e, floor);
+		}
+		
+		/**
+		 * Send an elevator to a floor, by message if it runs as an actor.
+		 */
+		private void order(Elevator e, int floor) {
+			if(phasedTick != null) phasedTick.goTo(e, floor);
+			else e.goTo(floor);
+		}
+		
+		/**
+		 * Let the dispatcher choose, if there is one and it reaches a decision in time.
+		 * @param allowed the indexes of the elevators that may be sent
+		 * @return whether an elevator was sent
+		 */
+		private boolean dispatchByRollout(int floor, String direction, BitSet allowed) {
+			if(dispatcher == null) return false;
+			int i = dispatcher.choose(SimulationBase.this, floor, direction, allowed);
+			if(i < 0) return false;
+			order(elevators[i], floor);
+			return true;
+		}
+		
+		/**
+		 * @param allowed the indexes of the elevators that may be sent
+		 * @return the elevator to send, or null if none is allowed
+		 */
+		public Elevator getBestElevator(int floor, BitSet allowed) {
+			if(allowed.isEmpty()) return null;
+			Elevator tabled = lookUp(floor, null, allowed);
+			if(tabled != null) return tabled;
+			LinkedList<Elevator> candidates = new LinkedList<Elevator>();
+			
+			// Find an elevator with no further destinations
+			for(int i = allowed.nextSetBit(0); i >= 0; i = allowed.nextSetBit(i + 1)) if(elevators[i].getDirection() == null) candidates.add(elevators[i]);
+			if(getClosestElevator(floor, candidates) != null) return getClosestElevator(floor, candidates);
+			
+			// Find an elevator moving in the right direction
+			for(int i = allowed.nextSetBit(0); i >= 0; i = allowed.nextSetBit(i + 1)) {
+				Elevator e = elevators[i];
+				if(floor > e.getPosition() && e.getDirection().equals("up")) candidates.add(e);
+				if(floor < e.getPosition() && e.getDirection().equals("down")) candidates.add(e);
+				}
+			if(getClosestElevator(floor, candidates) != null) return getClosestElevator(floor, candidates);
+			
+			// Find an elevator moving in the wrong direction
+			else {
+				for(int i = allowed.nextSetBit(0); i >= 0; i = allowed.nextSetBit(i + 1)) candidates.add(elevators[i]);
+				Elevator leastBusyElevator = new Elevator();
+				int shortestQueue = floors;
+				for(Elevator c : candidates) {
+					if(c.getDestinations().size() < shortestQueue) {
+						shortestQueue = c.getDestinations().size();
+						leastBusyElevator = c;
+					}
+				}
+				return leastBusyElevator;
+			}
+		}
+		
+		/**
+		 * @param allowed the indexes of the elevators that may be sent
+		 * @return the elevator to send, or null if none is free or already heading that way
+		 */
+		public Elevator getBestElevator(int floor, String direction, BitSet allowed) {
+			Elevator tabled = lookUp(floor, direction, allowed);
+			if(tabled != null) return tabled;
+			LinkedList<Elevator> candidates = new LinkedList<Elevator>();
+			
+			// Find an elevator with no further destinations
+			for(int i = allowed.nextSetBit(0); i >= 0; i = allowed.nextSetBit(i + 1)) if(elevators[i].getDirection() == null) candidates.add(elevators[i]);
+			if(getClosestElevator(floor, candidates) != null) return getClosestElevator(floor, candidates);
+			
+			// Find an elevator moving in the right direction
+			for(int i = allowed.nextSetBit(0); i >= 0; i = allowed.nextSetBit(i + 1)) {
+				Elevator e = elevators[i];
+				if(!direction.equals("down") && floor > e.getPosition() && e.getDirection().equals("up")) candidates.add(e);
+				else if(!direction.equals("up") && floor < e.getPosition() && e.getDirection().equals("down")) candidates.add(e);
+				}
+			if(getClosestElevator(floor, candidates) != null) return getClosestElevator(floor, candidates);
+			
+			return null;
+			
+		}
+		
+		/**
+		 * Get the policy table's choice, or null if there is no table or it doesn't cover the state.
+		 */
+		private Elevator lookUp(int floor, String direction, BitSet allowed) {
+			if(policy == null) return null;
+			int i = policy.choose(SimulationBase.this, floor, direction, allowed);
+			return i >= 0 ? elevators[i] : null;
+		}
+		
+		private Elevator getClosestElevator(int floor, LinkedList<Elevator> candidates) {
+			if(candidates.size() == 1) return candidates.getFirst();
+			if(candidates.size() > 1) {
+				Elevator closestElevator = candidates.getFirst();
+				for(Elevator c : candidates) if(Math.abs(c.getPosition() - floor) < Math.abs(closestElevator.getPosition() - floor)) closestElevator = c;
+				return closestElevator;
+			}
+			return null;
+		}
+		
+	}
+	
+	/**
+	 * Keeps an exponentially weighted estimate of how often each floor calls in each direction, and every few seconds sends idle elevators
+	 * to the busiest floors that have none, nearest elevator first. Each call adds to its floor's rate, and rates decay with the time constant,
+	 * so an estimate costs one exponential per call and old traffic fades away.
+	 */
+	private class Parking {
+		
+		private final double INTERVAL = 5000; // Simulation ms between repositioning passes
+		private final double MIN_GAIN = 2; // How many times busier a floor must be than where an idle elevator is for it to move
+		private double timeConstant = 0; // Simulation ms, or 0 for off
+		private double[][] rates, updated; // Calls per ms from each floor up and down, as of the time each was updated
+		private double nextPass = 0;
+		private long moves = 0;
+		
+		public void setTimeConstant(double t) {
+			timeConstant = Math.max(t, 0);
+			if(rates == null) {
+				rates = new double[floors][2];
+				updated = new double[floors][2];
+			}
+			nextPass = time;
+		}
+		
+		public void copy(Parking p) {
+			timeConstant = p.timeConstant;
+			nextPass = p.nextPass;
+			moves = p.moves;
+			if(p.rates == null) return;
+			rates = new double[floors][];
+			updated = new double[floors][];
+			for(int f = 0; f < floors; f ++) {
+				rates[f] = p.rates[f].clone();
+				updated[f] = p.updated[f].clone();
+			}
+		}
+		
+		public void called(int floor, boolean up) {
+			if(timeConstant <= 0) return;
+			int d = up ? 0 : 1;
+			rates[floor][d] = getRate(floor, d) + 1 / timeConstant;
+			updated[floor][d] = time;
+		}
+		
+		public double getRate(int floor, int d) {
+			if(rates == null || timeConstant <= 0) return 0;
+			return rates[floor][d] * Math.exp((updated[floor][d] - time) / timeConstant);
+		}
+		
+		/**
+		 * Whether a repositioning pass is due at a time, so that idle stretches aren't skipped past it.
+		 */
+		public boolean isDue(double t) {
+			return timeConstant > 0 && t >= nextPass;
+		}
+		
+		public void update() {
+			if(!isDue(time)) return;
+			nextPass = time + INTERVAL;
+			
+			// Share the idle elevators out between the floors in proportion to their call rates, most deserving first
+			ArrayList<Integer> idle = new ArrayList<Integer>();
+			for(int i = 0; i < elevators.length; i ++) if(elevators[i].isIdle()) idle.add(i);
+			if(idle.isEmpty()) return;
+			double[] rate = new double[floors];
+			for(int f = 0; f < floors; f ++) rate[f] = getRate(f, 0) + getRate(f, 1);
+			int[] share = new int[floors];
+			PriorityQueue<Integer> deserving = new PriorityQueue<Integer>(Math.max(floors, 1),
+					(a, b) -> a.equals(b) ? 0 : rate[a] / (share[a] + 1) != rate[b] / (share[b] + 1) ? Double.compare(rate[b] / (share[b] + 1), rate[a] / (share[a] + 1)) : a - b);
+			for(int f = 0; f < floors; f ++) if(rate[f] > 0) deserving.add(f);
+			int[] targets = new int[idle.size()];
+			int numTargets = 0;
+			while(numTargets < targets.length && !deserving.isEmpty()) {
+				int f = deserving.poll();
+				targets[numTargets ++] = f;
+				share[f] ++;
+				deserving.add(f);
+			}
+			
+			// Elevators already on a floor that gets a share stay, then the nearest idle elevator goes to each share left
+			for(Iterator<Integer> i = idle.iterator(); i.hasNext(); ) {
+				int floor = (int)elevators[i.next()].getPosition();
+				if(share[floor] > 0) {
+					share[floor] --;
+					i.remove();
+				}
+			}
+			for(int k = 0; k < numTargets; k ++) {
+				int target = targets[k];
+				if(share[target] == 0) continue;
+				int nearest = -1;
+				for(int j = 0; j < idle.size(); j ++) {
+					Elevator e = elevators[idle.get(j)];
+					if(!e.serves(target) || rate[target] < MIN_GAIN * rate[(int)e.getPosition()]) continue;
+					if(nearest < 0 || Math.abs(e.getPosition() - target) < Math.abs(elevators[idle.get(nearest)].getPosition() - target)) nearest = j;
+				}
+				share[target] --;
+				if(nearest < 0) continue;
+				scheduler.order(elevators[idle.remove(nearest)], target);
+				moves ++;
+			}
+		}
+		
+		public void writeState(DataOutputStream out) throws IOException {
+			out.writeDouble(timeConstant);
+			out.writeDouble(nextPass);
+			out.writeLong(moves);
+			out.writeBoolean(rates != null);
+			if(rates == null) return;
+			for(int f = 0; f < floors; f ++) {
+				for(int d = 0; d < 2; d ++) {
+					out.writeDouble(rates[f][d]);
+					out.writeDouble(updated[f][d]);
+				}
+			}
+		}
+		
+		public void readState(DataInputStream in) throws IOException {
+			timeConstant = in.readDouble();
+			nextPass = in.readDouble();
+			moves = in.readLong();
+			if(!in.readBoolean()) return;
+			rates = new double[floors][2];
+			updated = new double[floors][2];
+			for(int f = 0; f < floors; f ++) {
+				for(int d = 0; d < 2; d ++) {
+					rates[f][d] = in.readDouble();
+					updated[f][d] = in.readDouble();
+				}
+			}
+		}
+		
+	}
+	
+	/**
+	 * Creates people randomly in the building.
+	 */
+	protected class Spawner {
+		
+		private int count = 0;
+		private int spawnInterval; // Simulation ms between spawn attempts, or less than 1 for none
+		private double sinceLastSpawn = 0; // Simulation ms
+		private double spawnProbability, groupMemberProbability; // Probability of creating each additional group and additional group member
+		
+		public int getNumberSpawned() {
+			return count;
+		}
+		
+		public int getSpawnInterval() {
+			return spawnInterval;
+		}
+		
+		public void setGroupMemberProbability(double p) {
+			inputs.add(() -> {
+				record("param", "groupMemberProbability " + p);
+				groupMemberProbability = p;
+			});
+		}
+		
+		public void setSpawnInterval(int f) {
+			inputs.add(() -> {
+				record("param", "spawnInterval " + f);
+				spawnInterval = f;
+			});
+		}
+		
+		public void setSpawnProbability(double p) {
+			inputs.add(() -> {
+				record("param", "spawnProbability " + p);
+				spawnProbability = p;
+			});
+		}
+		
+		/**
+		 * Let simulation time pass, spawning once per spawn interval.
+		 * @param elapsed simulation ms since the last update
+		 */
+		public void update(double elapsed) {
+			if(spawnInterval < 1) return;
+			sinceLastSpawn += elapsed;
+			while(sinceLastSpawn >= spawnInterval) {
+				sinceLastSpawn -= spawnInterval;
+				spawn();
+			}
+		}
+		
+		public void spawn() {
+			
+			// Generate successive groups
+			while(random.nextDouble() < spawnProbability) {
+				
+				// Create either:
+				// A person at floor 0 that wants to go to another floor or
+				// A person at another floor that wants to go to floor 0
+				int startingFloor = 0;
+				if(random.nextDouble() < .5) startingFloor = (int)(random.nextDouble() * (floors - 1)) + 1;
+				int destination = 0;
+				if(startingFloor == 0) destination = (int)(random.nextDouble() * (floors - 1)) + 1;
+				
+				// Generate successive group members
+				do {
+					Person p = new Person(startingFloor, destination, (long)time);
+					people.get(startingFloor).add(p);
+					wakeFloor(startingFloor);
+					statistics.arrived(p);
+					record("arrive", startingFloor + " " + destination);
+					count ++;
+				}
+				while(random.nextDouble() < groupMemberProbability);
+
+				// Order pickup
+				parking.called(startingFloor, startingFloor < destination);
+				scheduler.callBestElevator(startingFloor, destination);
+			}
+		}
+		
+	}
+	
+}
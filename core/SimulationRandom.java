@@ -0,0 +1,38 @@
+import java.util.Random;
+
+/**
+ * A Random whose state can be saved and restored, so that a restored simulation makes the same choices it would have made.
+ * Produces the same sequence as java.util.Random for the same seed.
+ */
+public class SimulationRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+	private static final long MULTIPLIER = 0x5DEECE66DL, ADDEND = 0xBL, MASK = (1L << 48) - 1;
+	private long state; // No initializer: Random's constructor sets it through setSeed
+
+	public SimulationRandom() {
+		super();
+	}
+
+	public SimulationRandom(long seed) {
+		super(seed);
+	}
+
+	public synchronized void setSeed(long seed) {
+		state = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	protected int next(int bits) {
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int)(state >>> (48 - bits));
+	}
+
+	public long getState() {
+		return state;
+	}
+
+	public void setState(long s) {
+		state = s & MASK;
+	}
+
+}
@@ -0,0 +1,337 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams a simulation's frames to other processes over a TCP socket on the loopback interface, so runs can be watched from separate dashboards.
+ *
+ * Each message is an int length followed by that many bytes: a type byte, then the tick (long) and simulation time (double).
+ * A keyframe then has the number of elevators and floors, every elevator's position (float), status (byte, as in STATUSES) and number of occupants,
+ * and every floor's queue length. A delta has the number of elevators that changed, each as its index, a byte of FIELD_ bits saying what changed
+ * and the new values of those fields, then the number of floors that changed, each as its index and new queue length.
+ * Counts, indexes, occupants and queue lengths are unsigned varints.
+ *
+ * Every reader starts with a keyframe, and everyone gets one every keyframe interval. Messages are encoded once, on the server's own thread,
+ * from the frames the simulation publishes, so readers never hold up the simulation. Each reader has a bounded queue, and a reader that
+ * lets its queue fill is disconnected instead of being waited for.
+ */
+public class StateServer implements Closeable {
+
+	public static final byte KEYFRAME = 0, DELTA = 1;
+	public static final int FIELD_POSITION = 1, FIELD_STATUS = 2, FIELD_OCCUPANTS = 4;
+	public static final String[] STATUSES = {"up", "down", "waiting", "stopped"};
+
+	private SimulationBase simulation;
+	private ServerSocket server;
+	private CopyOnWriteArrayList<Reader> readers = new CopyOnWriteArrayList<Reader>();
+	private int rate = 20; // Messages per second
+	private int keyframeInterval = 100; // Messages between keyframes
+	private int maxQueued = 64; // Messages per reader
+	private volatile boolean running = false;
+	private Thread publisher, acceptor;
+	private Frame sent; // The frame last sent
+	private long numSent = 0, numDropped = 0;
+
+	/**
+	 * @param port the local port to listen on, or 0 for any free port
+	 */
+	public StateServer(SimulationBase simulation, int port) throws IOException {
+		this.simulation = simulation;
+		server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+	}
+
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Set how many messages to send per second. The simulation must publish frames at least as often; see SimulationBase.setFrameRate.
+	 */
+	public void setRate(int messagesPerSecond) {
+		if(messagesPerSecond < 1) throw new IllegalArgumentException("Need at least 1 message per second");
+		rate = messagesPerSecond;
+	}
+
+	public void setKeyframeInterval(int messages) {
+		keyframeInterval = messages;
+	}
+
+	/**
+	 * Set how many messages may wait to be sent to each reader before the reader is disconnected.
+	 */
+	public void setMaxQueued(int messages) {
+		maxQueued = messages;
+	}
+
+	public int getNumberOfReaders() {
+		return readers.size();
+	}
+
+	/**
+	 * Get how many readers have been disconnected for falling behind.
+	 */
+	public synchronized long getNumberDropped() {
+		return numDropped;
+	}
+
+	/**
+	 * Get the frame last sent to readers, or null if none has been.
+	 */
+	public synchronized Frame getLastSent() {
+		return sent;
+	}
+
+	/**
+	 * Start accepting readers and sending them frames.
+	 */
+	public void start() {
+		if(running) return;
+		running = true;
+		acceptor = new Thread(new Acceptor(), "state server");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		publisher = new Thread(new Publisher(), "state publisher");
+		publisher.setDaemon(true);
+		publisher.start();
+	}
+
+	/**
+	 * Stop, and disconnect every reader.
+	 */
+	public void close() throws IOException {
+		running = false;
+		server.close();
+		if(publisher != null) {
+			LockSupport.unpark(publisher);
+			boolean interrupted = false;
+			while(publisher.isAlive()) {
+				try {
+					publisher.join();
+				}
+				catch(InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if(interrupted) Thread.currentThread().interrupt();
+		}
+		for(Reader r : readers) r.close();
+		readers.clear();
+	}
+
+	/**
+	 * Takes the simulation's latest frame at the set rate, encodes it once, and queues it for every reader.
+	 */
+	private class Publisher implements Runnable {
+
+		public void run() {
+			long next = System.nanoTime();
+			while(running) {
+				Frame f = simulation.getFrame();
+				if(f != sent) send(f);
+				next += TimeUnit.SECONDS.toNanos(1) / rate;
+				long now;
+				while(running && (now = System.nanoTime()) < next) LockSupport.parkNanos(next - now);
+			}
+		}
+
+		private void send(Frame f) {
+			byte[] keyframe = null, delta = null;
+			boolean allKeyframes = sent == null || numSent % keyframeInterval == 0 || sent.getNumberOfElevators() != f.getNumberOfElevators();
+			for(Reader r : readers) {
+				byte[] message;
+				if(allKeyframes || r.needsKeyframe) {
+					if(keyframe == null) keyframe = encodeKeyframe(f);
+					message = keyframe;
+				}
+				else {
+					if(delta == null) delta = encodeDelta(sent, f);
+					message = delta;
+				}
+				r.needsKeyframe = false;
+				if(!r.queue.offer(message)) {
+					r.close();
+					readers.remove(r);
+					synchronized(StateServer.this) {
+						numDropped ++;
+					}
+				}
+			}
+			synchronized(StateServer.this) {
+				sent = f;
+			}
+			numSent ++;
+		}
+
+	}
+
+	private static byte[] encodeKeyframe(Frame f) {
+		Encoder out = new Encoder(KEYFRAME, f);
+		try {
+			out.writeVarint(f.getNumberOfElevators());
+			out.writeVarint(f.getNumberOfFloors());
+			for(int i = 0; i < f.getNumberOfElevators(); i ++) {
+				out.writeFloat((float)f.getPosition(i));
+				out.writeByte(getStatusCode(f.getStatus(i)));
+				out.writeVarint(f.getNumberOfOccupants(i));
+			}
+			for(int i = 0; i < f.getNumberOfFloors(); i ++) out.writeVarint(f.getQueueLength(i));
+		}
+		catch(IOException e) {
+			throw new AssertionError(e); // Writing to memory
+		}
+		return out.toMessage();
+	}
+
+	private static byte[] encodeDelta(Frame from, Frame to) {
+		Encoder out = new Encoder(DELTA, to);
+		try {
+			int changed = 0;
+			int[] fields = new int[to.getNumberOfElevators()];
+			for(int i = 0; i < fields.length; i ++) {
+				if((float)from.getPosition(i) != (float)to.getPosition(i)) fields[i] |= FIELD_POSITION;
+				if(!from.getStatus(i).equals(to.getStatus(i))) fields[i] |= FIELD_STATUS;
+				if(from.getNumberOfOccupants(i) != to.getNumberOfOccupants(i)) fields[i] |= FIELD_OCCUPANTS;
+				if(fields[i] != 0) changed ++;
+			}
+			out.writeVarint(changed);
+			for(int i = 0; i < fields.length; i ++) {
+				if(fields[i] == 0) continue;
+				out.writeVarint(i);
+				out.writeByte(fields[i]);
+				if((fields[i] & FIELD_POSITION) != 0) out.writeFloat((float)to.getPosition(i));
+				if((fields[i] & FIELD_STATUS) != 0) out.writeByte(getStatusCode(to.getStatus(i)));
+				if((fields[i] & FIELD_OCCUPANTS) != 0) out.writeVarint(to.getNumberOfOccupants(i));
+			}
+			changed = 0;
+			for(int i = 0; i < to.getNumberOfFloors(); i ++) if(from.getQueueLength(i) != to.getQueueLength(i)) changed ++;
+			out.writeVarint(changed);
+			for(int i = 0; i < to.getNumberOfFloors(); i ++) {
+				if(from.getQueueLength(i) == to.getQueueLength(i)) continue;
+				out.writeVarint(i);
+				out.writeVarint(to.getQueueLength(i));
+			}
+		}
+		catch(IOException e) {
+			throw new AssertionError(e);
+		}
+		return out.toMessage();
+	}
+
+	private static int getStatusCode(String status) {
+		for(int i = 0; i < STATUSES.length; i ++) if(STATUSES[i].equals(status)) return i;
+		throw new IllegalArgumentException("Unknown status: " + status);
+	}
+
+	/**
+	 * Writes one message into memory, leaving room for its length.
+	 */
+	private static class Encoder extends DataOutputStream {
+
+		public Encoder(byte type, Frame f) {
+			super(new ByteArrayOutputStream());
+			try {
+				writeInt(0); // Length, filled in by toMessage
+				writeByte(type);
+				writeLong(f.getTick());
+				writeDouble(f.getTime());
+			}
+			catch(IOException e) {
+				throw new AssertionError(e);
+			}
+		}
+
+		public void writeVarint(int value) throws IOException {
+			while((value & ~0x7F) != 0) {
+				writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			writeByte(value);
+		}
+
+		public byte[] toMessage() {
+			byte[] message = ((ByteArrayOutputStream)out).toByteArray();
+			int length = message.length - 4;
+			message[0] = (byte)(length >>> 24);
+			message[1] = (byte)(length >>> 16);
+			message[2] = (byte)(length >>> 8);
+			message[3] = (byte)length;
+			return message;
+		}
+
+	}
+
+	private class Acceptor implements Runnable {
+
+		public void run() {
+			while(running) {
+				try {
+					Socket s = server.accept();
+					s.setTcpNoDelay(true);
+					Reader r = new Reader(s);
+					r.start();
+					readers.add(r);
+				}
+				catch(IOException e) {
+					if(!running) return; // Closed
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * One connected reader, with its own queue of messages and a thread that sends them.
+	 */
+	private class Reader implements Runnable {
+
+		private Socket socket;
+		private ArrayBlockingQueue<byte[]> queue = new ArrayBlockingQueue<byte[]>(maxQueued);
+		private volatile boolean needsKeyframe = true;
+		private Thread sender;
+
+		public Reader(Socket s) {
+			socket = s;
+		}
+
+		public void start() {
+			sender = new Thread(this, "state reader " + socket.getPort());
+			sender.setDaemon(true);
+			sender.start();
+		}
+
+		public void run() {
+			try {
+				OutputStream out = socket.getOutputStream();
+				while(true) out.write(queue.take());
+			}
+			catch(IOException | InterruptedException e) {
+				// Disconnected, by either side
+			}
+			finally {
+				close();
+				readers.remove(this);
+			}
+		}
+
+		public void close() {
+			try {
+				socket.close();
+			}
+			catch(IOException e) {
+				// Already gone
+			}
+			sender.interrupt();
+		}
+
+	}
+
+}
@@ -0,0 +1,121 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Key performance figures of a simulation: how long people wait for an elevator, and how long their whole trip takes.
+ * All times are in simulation ms.
+ */
+public class Statistics {
+
+	private static final int BINS = 1800, BIN_WIDTH = 1000; // One-second bins up to half an hour
+	private Histogram waits = new Histogram(BINS, BIN_WIDTH); // From arrival to boarding
+	private Histogram trips = new Histogram(BINS, BIN_WIDTH); // From arrival to reaching the destination
+	private long arrived = 0;
+
+	/**
+	 * Count someone arriving in the building.
+	 */
+	public void arrived(Person p) {
+		arrived ++;
+	}
+
+	/**
+	 * Count someone getting into an elevator.
+	 */
+	public void boarded(Person p) {
+		waits.add(p.getBoardTime() - p.getTimeCreated());
+	}
+
+	/**
+	 * Count someone reaching their destination.
+	 */
+	public void delivered(Person p, long time) {
+		trips.add(time - p.getTimeCreated());
+	}
+
+	public long getNumberArrived() {
+		return arrived;
+	}
+
+	public long getNumberBoarded() {
+		return waits.getCount();
+	}
+
+	public long getNumberDelivered() {
+		return trips.getCount();
+	}
+
+	public double getTotalWaitTime() {
+		return waits.getTotal();
+	}
+
+	public double getMeanWaitTime() {
+		return waits.getMean();
+	}
+
+	public double getWaitTimePercentile(double q) {
+		return waits.getPercentile(q);
+	}
+
+	public double getMaxWaitTime() {
+		return waits.getMax();
+	}
+
+	public double getMeanTripTime() {
+		return trips.getMean();
+	}
+
+	public double getTripTimePercentile(double q) {
+		return trips.getPercentile(q);
+	}
+
+	public Histogram getWaitTimes() {
+		return waits;
+	}
+
+	public Histogram getTripTimes() {
+		return trips;
+	}
+
+	/**
+	 * Add everything counted by another run, e.g. to pool replicas.
+	 */
+	public void add(Statistics s) {
+		waits.add(s.waits);
+		trips.add(s.trips);
+		arrived += s.arrived;
+	}
+
+	/**
+	 * Forget everything counted so far, e.g. at the end of a warm-up period.
+	 */
+	public void clear() {
+		waits.clear();
+		trips.clear();
+		arrived = 0;
+	}
+
+	public Statistics copy() {
+		Statistics s = new Statistics();
+		s.waits = waits.copy();
+		s.trips = trips.copy();
+		s.arrived = arrived;
+		return s;
+	}
+
+	public void writeState(DataOutputStream out) throws IOException {
+		waits.writeState(out);
+		trips.writeState(out);
+		out.writeLong(arrived);
+	}
+
+	public static Statistics readState(DataInputStream in) throws IOException {
+		Statistics s = new Statistics();
+		s.waits = Histogram.readState(in);
+		s.trips = Histogram.readState(in);
+		s.arrived = in.readLong();
+		return s;
+	}
+
+}
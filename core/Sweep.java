@@ -0,0 +1,256 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Searches combinations of scenario settings, such as fleet size, capacity, dwell time and dispatch strategy, for the best trade-offs between fleet cost and wait time.
+ *
+ * Every combination first gets one short pilot run. Combinations that an equally cheap or cheaper one clearly beats on 95th percentile wait are dropped.
+ * The rest get full runs with more and more seeds, pooled, until their wait figures are known to the requested precision.
+ * The result is the Pareto frontier: the combinations no other one beats on both cost and wait.
+ * All runs are spread over every core.
+ *
+ * Usage: java Sweep &lt;scenario file&gt; key=value[,value...] ... [target=seconds] [replicas=max] [precision=fraction] [pilot=fraction] [margin=fraction] [carCost=n] [placeCost=n] [cache=directory]
+ */
+public class Sweep {
+
+	private Scenario base;
+	private LinkedHashMap<String, String[]> dimensions = new LinkedHashMap<String, String[]>();
+	private double target = 45; // 95th percentile wait to meet, in seconds
+	private int replicas = 100; // Most seeds to run per combination
+	private double precision = .05; // See ReplicaRunner
+	private double pilot = .25; // Length of pilot runs as a fraction of the full duration
+	private double margin = .25; // How much better a cheaper combination's pilot must be to drop another
+	private double carCost = 1, placeCost = .05; // Cost of each elevator, and of each place of capacity in it
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private ResultCache cache; // Or null
+
+	public Sweep(Scenario base) {
+		this.base = base;
+	}
+
+	/**
+	 * Try each of the given values of a scenario setting.
+	 */
+	public void vary(String key, String... values) {
+		base.set(key, values[0]); // Checks the key
+		dimensions.put(key, values);
+	}
+
+	public void setTarget(double seconds) {
+		target = seconds;
+	}
+
+	public double getTarget() {
+		return target;
+	}
+
+	public void setReplicas(int n) {
+		replicas = n;
+	}
+
+	public void setPrecision(double fraction) {
+		precision = fraction;
+	}
+
+	public void setPilot(double fraction) {
+		pilot = fraction;
+	}
+
+	public void setMargin(double fraction) {
+		margin = fraction;
+	}
+
+	public void setCosts(double car, double place) {
+		carCost = car;
+		placeCost = place;
+	}
+
+	public void setThreads(int n) {
+		threads = n;
+	}
+
+	public void setCache(ResultCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Get the fleet cost of a scenario.
+	 */
+	public double getCost(Scenario s) {
+		return s.getInt("elevators") * (carCost + s.getInt("capacity") * placeCost);
+	}
+
+	/**
+	 * Get every combination of the varied settings.
+	 */
+	public List<Scenario> getCombinations() {
+		List<Scenario> combinations = new ArrayList<Scenario>();
+		combinations.add(base.copy());
+		for(Map.Entry<String, String[]> d : dimensions.entrySet()) {
+			List<Scenario> next = new ArrayList<Scenario>();
+			for(Scenario s : combinations) {
+				for(String value : d.getValue()) {
+					Scenario c = s.copy();
+					c.set(d.getKey(), value);
+					next.add(c);
+				}
+			}
+			combinations = next;
+		}
+		return combinations;
+	}
+
+	/**
+	 * Run the sweep.
+	 * @return the Pareto frontier, cheapest first
+	 */
+	public List<Result> run() throws InterruptedException, ExecutionException {
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		try {
+			List<Result> pilots = runPilots(workers, getCombinations());
+			List<Scenario> survivors = new ArrayList<Scenario>();
+			for(Result r : pilots) if(!isClearlyDominated(r, pilots)) survivors.add(r.getScenario());
+			ReplicaRunner runner = new ReplicaRunner(workers, threads);
+			runner.setMaxReplicas(replicas);
+			runner.setPrecision(precision);
+			runner.setCache(cache);
+			List<Result> results = new ArrayList<Result>();
+			for(Scenario s : survivors) results.add(new Result(s, getCost(s), runner.run(s).getStatistics()));
+			return getFrontier(results);
+		}
+		finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Give every scenario one shortened run, in parallel.
+	 */
+	private List<Result> runPilots(ExecutorService workers, List<Scenario> scenarios) throws InterruptedException, ExecutionException {
+		List<Future<Statistics>> runs = new ArrayList<Future<Statistics>>();
+		for(Scenario s : scenarios) {
+			final Scenario p = s.copy();
+			p.set("duration", String.valueOf(s.getDouble("duration") * pilot));
+			runs.add(workers.submit(() -> cache != null ? cache.run(p) : p.run(null)));
+		}
+		List<Result> results = new ArrayList<Result>();
+		for(int i = 0; i < scenarios.size(); i ++) results.add(new Result(scenarios.get(i), getCost(scenarios.get(i)), runs.get(i).get()));
+		return results;
+	}
+
+	/**
+	 * Whether something at most as expensive waits clearly less.
+	 */
+	private boolean isClearlyDominated(Result r, List<Result> others) {
+		for(Result o : others) {
+			if(o != r && o.getCost() <= r.getCost() && o.getP95Wait() * (1 + margin) < r.getP95Wait()) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Get the results that nothing beats on both cost and 95th percentile wait, cheapest first.
+	 */
+	public static List<Result> getFrontier(List<Result> results) {
+		List<Result> sorted = new ArrayList<Result>(results);
+		Collections.sort(sorted, new Comparator<Result>() {
+			public int compare(Result a, Result b) {
+				if(a.getCost() != b.getCost()) return Double.compare(a.getCost(), b.getCost());
+				return Double.compare(a.getP95Wait(), b.getP95Wait());
+			}
+		});
+		List<Result> frontier = new ArrayList<Result>();
+		double bestWait = Double.MAX_VALUE;
+		for(Result r : sorted) {
+			if(r.getP95Wait() < bestWait) {
+				frontier.add(r);
+				bestWait = r.getP95Wait();
+			}
+		}
+		return frontier;
+	}
+
+	/**
+	 * One combination of settings and how it did.
+	 */
+	public static class Result {
+
+		private Scenario scenario;
+		private double cost;
+		private Statistics statistics;
+
+		public Result(Scenario scenario, double cost, Statistics statistics) {
+			this.scenario = scenario;
+			this.cost = cost;
+			this.statistics = statistics;
+		}
+
+		public Scenario getScenario() {
+			return scenario;
+		}
+
+		public double getCost() {
+			return cost;
+		}
+
+		public Statistics getStatistics() {
+			return statistics;
+		}
+
+		/**
+		 * Get the 95th percentile wait in seconds.
+		 */
+		public double getP95Wait() {
+			return statistics.getWaitTimePercentile(.95) / 1000;
+		}
+
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+		if(args.length < 1) {
+			System.err.println("Usage: java Sweep <scenario file> key=value[,value...] ... [target=seconds] [replicas=max] [precision=fraction] [pilot=fraction] [margin=fraction] [carCost=n] [placeCost=n] [cache=directory]");
+			System.exit(2);
+		}
+		Sweep sweep = new Sweep(Scenario.load(new File(args[0])));
+		double carCost = 1, placeCost = .05;
+		for(int i = 1; i < args.length; i ++) {
+			int equals = args[i].indexOf('=');
+			if(equals < 1) throw new IllegalArgumentException("Expected key=value: " + args[i]);
+			String key = args[i].substring(0, equals), value = args[i].substring(equals + 1);
+			if(key.equals("target")) sweep.setTarget(Double.parseDouble(value));
+			else if(key.equals("replicas")) sweep.setReplicas(Integer.parseInt(value));
+			else if(key.equals("precision")) sweep.setPrecision(Double.parseDouble(value));
+			else if(key.equals("pilot")) sweep.setPilot(Double.parseDouble(value));
+			else if(key.equals("margin")) sweep.setMargin(Double.parseDouble(value));
+			else if(key.equals("carCost")) carCost = Double.parseDouble(value);
+			else if(key.equals("placeCost")) placeCost = Double.parseDouble(value);
+			else if(key.equals("cache")) sweep.setCache(new ResultCache(new File(value), ResultCache.DEFAULT_SIZE));
+			else if(value.indexOf(',') >= 0) sweep.vary(key, value.split(","));
+			else sweep.base.set(key, value);
+		}
+		sweep.setCosts(carCost, placeCost);
+
+		List<Result> frontier = sweep.run();
+		Result cheapest = null;
+		for(Result r : frontier) if(cheapest == null && r.getP95Wait() <= sweep.getTarget()) cheapest = r;
+		System.out.println("cost,p95Wait,meanWait," + String.join(",", sweep.dimensions.keySet()));
+		for(Result r : frontier) {
+			StringBuilder line = new StringBuilder(String.format("%.2f,%.0f,%.1f", r.getCost(), r.getP95Wait(), r.getStatistics().getMeanWaitTime() / 1000));
+			for(String key : sweep.dimensions.keySet()) line.append(',').append(r.getScenario().get(key));
+			if(r == cheapest) line.append("  <- cheapest with p95 wait within ").append(sweep.getTarget()).append("s");
+			System.out.println(line);
+		}
+		if(cheapest == null) System.out.println("Nothing met the target of " + sweep.getTarget() + "s");
+	}
+
+}
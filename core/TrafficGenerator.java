@@ -0,0 +1,248 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes days of synthetic office traffic to a CSV file, one line per person in time order, for benchmarks that need large, repeatable inputs.
+ *
+ * Each day has a morning up-peak from the lobby, a lunch peak down to the lobby and back up, an evening down-peak to the lobby,
+ * and trips between floors through the working day. Each peak is a normal curve, and every person in the building makes each of those trips once a day on average.
+ * People arrive in groups going the same way, with each further member joining with the group member probability, as the Spawner makes them.
+ *
+ * The run is cut into time slices that are generated in parallel, each from its own random stream derived from the seed and the slice's number,
+ * and written in order, so the file is the same whatever the number of threads.
+ *
+ * Usage: java TrafficGenerator &lt;file.csv&gt; [floors=50] [days=1] [population=50] [groupMemberProbability=0.5] [seed=1] [threads=n] [slice=3600]
+ * population is people per floor above the lobby, and slice is in seconds.
+ */
+public class TrafficGenerator {
+
+	private static final long DAY = 24 * 3600 * 1000L; // ms
+	private static final byte[] HEADER = "arrival_ms,origin,destination\n".getBytes();
+	private static final int UP = 0, LUNCH_DOWN = 1, LUNCH_UP = 2, DOWN = 3, INTERFLOOR = 4;
+	private static final double[] PEAK = {8.75, 12.25, 13, 17.25}; // Hour of the day at the centre of each peak
+	private static final double[] SPREAD = {.5, .33, .33, .66}; // Hours, one standard deviation
+	private static final double[] TRIPS = {1, .5, .5, 1, 1}; // Trips per person per day of each kind
+	private static final double WORK_START = 9, WORK_END = 17; // Hours between which people travel between floors
+
+	private int floors = 50, days = 1, population = 50;
+	private double groupMemberProbability = .5;
+	private long seed = 1;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private long slice = 3600 * 1000; // ms
+	private double[] groupsPerMs = new double[5]; // Rate of groups of each kind at its peak, or throughout the working day for trips between floors
+
+	/**
+	 * Set from a "key=value" string, as given on the command line.
+	 */
+	public void set(String assignment) {
+		int i = assignment.indexOf('=');
+		if(i < 1) throw new IllegalArgumentException("Expected key=value: " + assignment);
+		String key = assignment.substring(0, i).trim(), value = assignment.substring(i + 1).trim();
+		if(key.equals("floors")) floors = Integer.parseInt(value);
+		else if(key.equals("days")) days = Integer.parseInt(value);
+		else if(key.equals("population")) population = Integer.parseInt(value);
+		else if(key.equals("groupMemberProbability")) groupMemberProbability = Double.parseDouble(value);
+		else if(key.equals("seed")) seed = Long.parseLong(value);
+		else if(key.equals("threads")) threads = Integer.parseInt(value);
+		else if(key.equals("slice")) slice = (long)(Double.parseDouble(value) * 1000);
+		else throw new IllegalArgumentException("Unknown setting: " + key);
+	}
+
+	/**
+	 * Generate the traffic and write it out.
+	 * @return the number of people written
+	 */
+	public long write(OutputStream out) throws IOException, InterruptedException {
+		if(floors < 2 || slice < 1 || groupMemberProbability < 0 || groupMemberProbability >= 1) throw new IllegalArgumentException("Need at least 2 floors, a positive slice and a group member probability below 1");
+		double groupSize = 1 / (1 - groupMemberProbability), people = (double)population * (floors - 1);
+		for(int k = 0; k < PEAK.length; k ++) groupsPerMs[k] = people * TRIPS[k] / groupSize / (SPREAD[k] * 3600000 * Math.sqrt(2 * Math.PI));
+		groupsPerMs[INTERFLOOR] = people * TRIPS[INTERFLOOR] / groupSize / ((WORK_END - WORK_START) * 3600000);
+
+		out.write(HEADER);
+		long slices = (days * DAY + slice - 1) / slice, written = 0;
+		ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "traffic");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			// Keep a few slices per thread in flight, and write each as soon as those before it are written
+			ArrayDeque<Future<Slice>> pending = new ArrayDeque<Future<Slice>>();
+			long next = 0;
+			while(next < slices || !pending.isEmpty()) {
+				while(next < slices && pending.size() < threads * 4) {
+					final long n = next ++;
+					pending.add(workers.submit(() -> generate(n)));
+				}
+				Slice s = pending.remove().get();
+				out.write(s.bytes, 0, s.length);
+				written += s.people;
+			}
+		}
+		catch(ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		finally {
+			workers.shutdownNow();
+		}
+		return written;
+	}
+
+	/**
+	 * The lines of one time slice, formatted.
+	 */
+	private static class Slice {
+
+		private byte[] bytes = new byte[1 << 12];
+		private int length = 0;
+		private long people = 0;
+
+		public void add(long time, int origin, int destination) {
+			if(length + 3 * 21 > bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			put(time, ',');
+			put(origin, ',');
+			put(destination, '\n');
+			people ++;
+		}
+
+		/**
+		 * Append a non-negative number and a separator, without making a string.
+		 */
+		private void put(long value, char separator) {
+			int start = length;
+			do {
+				bytes[length ++] = (byte)('0' + value % 10);
+				value /= 10;
+			}
+			while(value > 0);
+			for(int i = start, j = length - 1; i < j; i ++, j --) {
+				byte b = bytes[i];
+				bytes[i] = bytes[j];
+				bytes[j] = b;
+			}
+			bytes[length ++] = (byte)separator;
+		}
+
+	}
+
+	/**
+	 * Generate one time slice's groups as a Poisson process whose rate follows the day, by thinning a faster constant-rate process.
+	 */
+	private Slice generate(long n) {
+		SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + n);
+		Slice s = new Slice();
+		long start = n * slice, end = Math.min(start + slice, days * DAY);
+		double[] rates = new double[groupsPerMs.length];
+		double max = 0;
+		for(int k = 0; k < rates.length; k ++) max += getMaxRate(k, start, end);
+		if(max <= 0) return s;
+		for(double t = start - Math.log(1 - random.nextDouble()) / max; t < end; t -= Math.log(1 - random.nextDouble()) / max) {
+			double total = 0;
+			for(int k = 0; k < rates.length; k ++) total += rates[k] = getRate(k, t);
+			double pick = random.nextDouble() * max;
+			if(pick >= total) continue; // Thinned out
+			int kind = 0;
+			while(kind < rates.length - 1 && pick >= rates[kind]) pick -= rates[kind ++];
+			int origin = 0, destination = 0, floor = 1 + random.nextInt(floors - 1);
+			if(kind == UP || kind == LUNCH_UP) destination = floor;
+			else if(kind == LUNCH_DOWN || kind == DOWN) origin = floor;
+			else {
+				origin = random.nextInt(floors);
+				destination = random.nextInt(floors - 1);
+				if(destination >= origin) destination ++;
+			}
+			do s.add((long)t, origin, destination);
+			while(random.nextDouble() < groupMemberProbability);
+		}
+		return s;
+	}
+
+	/**
+	 * Get the rate of groups of one kind at a time, per ms.
+	 */
+	private double getRate(int kind, double t) {
+		double hour = (t % DAY) / 3600000;
+		if(kind == INTERFLOOR) return hour >= WORK_START && hour < WORK_END ? groupsPerMs[kind] : 0;
+		double z = (hour - PEAK[kind]) / SPREAD[kind];
+		return groupsPerMs[kind] * Math.exp(-z * z / 2);
+	}
+
+	/**
+	 * Get the highest rate of groups of one kind between two times no more than a day apart, per ms.
+	 */
+	private double getMaxRate(int kind, long start, long end) {
+		if(end - start >= DAY) return groupsPerMs[kind];
+		double max = Math.max(getRate(kind, start), getRate(kind, end - 1));
+		long peakTime = start - start % DAY + (long)((kind == INTERFLOOR ? WORK_START : PEAK[kind]) * 3600000);
+		for(long p = peakTime - DAY; p <= peakTime + DAY; p += DAY) if(p >= start && p < end) max = Math.max(max, getRate(kind, p));
+		return max;
+	}
+
+	/**
+	 * Feeds a generated file into a simulation as time passes, in place of its spawner.
+	 */
+	public static class Playback {
+
+		private BufferedReader in;
+		private String[] next; // The next line, read ahead, or null at the end
+
+		public Playback(File f) throws IOException {
+			in = new BufferedReader(new FileReader(f));
+			in.readLine(); // Header
+			next = read();
+		}
+
+		/**
+		 * Add everyone who arrives before the given time.
+		 * @param until simulation time in ms
+		 * @return whether there is anyone left to add
+		 */
+		public boolean addUntil(SimulationBase s, double until) throws IOException {
+			while(next != null && Long.parseLong(next[0]) < until) {
+				s.addPerson(new Person(Integer.parseInt(next[1]), Integer.parseInt(next[2]), Long.parseLong(next[0])));
+				next = read();
+			}
+			return next != null;
+		}
+
+		private String[] read() throws IOException {
+			String line = in.readLine();
+			if(line != null) return line.split(",");
+			in.close();
+			return null;
+		}
+
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if(args.length < 1) {
+			System.err.println("Usage: java TrafficGenerator <file.csv> [floors=50] [days=1] [population=50] [groupMemberProbability=0.5] [seed=1] [threads=n] [slice=3600]");
+			System.exit(2);
+		}
+		TrafficGenerator g = new TrafficGenerator();
+		for(int i = 1; i < args.length; i ++) g.set(args[i]);
+		File f = new File(args[0]);
+		long start = System.nanoTime(), people;
+		OutputStream out = new FileOutputStream(f);
+		try {
+			people = g.write(out);
+		}
+		finally {
+			out.close();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d people, %.0f MB in %.1f s (%.0f people per second) on %d threads%n", people, f.length() / 1e6, seconds, people / seconds, g.threads);
+	}
+
+}
@@ -0,0 +1,13 @@
+/**
+ * Receives every completed trip as it happens.
+ */
+public interface TripListener {
+
+	/**
+	 * @param p the person, with their origin, destination, arrival and boarding times
+	 * @param elevator the index of the elevator they rode
+	 * @param time simulation ms when they got out
+	 */
+	void tripCompleted(Person p, int elevator, long time);
+
+}
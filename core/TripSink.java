@@ -0,0 +1,190 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes one CSV line per completed trip, without slowing the simulation down.
+ *
+ * Trips go into a preallocated ring of primitive columns, so recording one allocates nothing and never touches the file.
+ * A background thread takes them out in large batches and writes them. If the writer falls behind and the ring fills,
+ * the simulation waits for room up to a set time, then drops the trip and counts it, so it never blocks indefinitely.
+ * The simulation thread is the only one that may record trips.
+ */
+public class TripSink implements TripListener, Closeable {
+
+	public static final int DEFAULT_CAPACITY = 1 << 16; // Trips
+	public static final long DEFAULT_MAX_WAIT = TimeUnit.SECONDS.toNanos(1);
+	private static final byte[] HEADER = "origin,destination,arrival_ms,board_ms,alight_ms,elevator\n".getBytes();
+	private static final int MAX_LINE = 6 * 21; // Six longs with their separators
+	private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(10); // How long the writer sleeps when there is nothing to write
+
+	private int[] origins, destinations, elevators;
+	private long[] arrivals, boardings, alightings;
+	private int mask;
+	private AtomicLong head = new AtomicLong(), tail = new AtomicLong(); // Trips recorded and trips written; the ring holds those in between
+	private long maxWait; // ns
+	private volatile long dropped = 0;
+	private volatile boolean closed = false;
+	private volatile IOException failure;
+	private OutputStream out;
+	private byte[] buffer = new byte[1 << 20];
+	private Thread writer;
+
+	public TripSink(File f) throws IOException {
+		this(f, DEFAULT_CAPACITY, DEFAULT_MAX_WAIT);
+	}
+
+	/**
+	 * @param capacity how many trips the ring holds, rounded up to a power of two
+	 * @param maxWait the longest the simulation waits for room when the ring is full, in ns, before dropping a trip
+	 */
+	public TripSink(File f, int capacity, long maxWait) throws IOException {
+		capacity = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+		mask = capacity - 1;
+		origins = new int[capacity];
+		destinations = new int[capacity];
+		elevators = new int[capacity];
+		arrivals = new long[capacity];
+		boardings = new long[capacity];
+		alightings = new long[capacity];
+		this.maxWait = maxWait;
+		out = new FileOutputStream(f);
+		out.write(HEADER);
+		writer = new Thread(new Writer(), "trip writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public void tripCompleted(Person p, int elevator, long time) {
+		long h = head.get();
+		if(failure != null || closed || h - tail.get() > mask && !awaitRoom(h)) {
+			dropped ++;
+			return;
+		}
+		int i = (int)h & mask;
+		origins[i] = p.getOrigin();
+		destinations[i] = p.getDestination();
+		arrivals[i] = p.getTimeCreated();
+		boardings[i] = p.getBoardTime();
+		alightings[i] = time;
+		elevators[i] = elevator;
+		head.lazySet(h + 1);
+	}
+
+	/**
+	 * Wait for the writer to make room, for no longer than the maximum wait.
+	 * @return whether there is room
+	 */
+	private boolean awaitRoom(long h) {
+		long deadline = System.nanoTime() + maxWait;
+		while(h - tail.get() > mask) {
+			if(failure != null || closed || System.nanoTime() - deadline >= 0) return false;
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(this, 50000);
+		}
+		return true;
+	}
+
+	/**
+	 * Get how many trips were dropped because the writer fell behind or failed.
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Write every trip recorded so far and close the file.
+	 * @throws IOException if any write failed
+	 */
+	public void close() throws IOException {
+		if(closed) return;
+		closed = true;
+		LockSupport.unpark(writer);
+		boolean interrupted = false;
+		while(writer.isAlive()) {
+			try {
+				writer.join();
+			}
+			catch(InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted) Thread.currentThread().interrupt();
+		if(failure != null) throw failure;
+	}
+
+	/**
+	 * Takes trips out of the ring in batches, formats them into one buffer, and writes each buffer in a single call.
+	 */
+	private class Writer implements Runnable {
+
+		private int length; // Bytes in the buffer
+
+		public void run() {
+			try {
+				while(true) {
+					boolean finishing = closed; // Read before head, so nothing recorded before close() is missed
+					long t = tail.get(), h = head.get();
+					if(t == h) {
+						if(finishing) break;
+						LockSupport.parkNanos(this, IDLE_WAIT);
+						continue;
+					}
+					h = Math.min(h, t + (buffer.length / MAX_LINE));
+					length = 0;
+					for(long n = t; n < h; n ++) {
+						int i = (int)n & mask;
+						put(origins[i], ',');
+						put(destinations[i], ',');
+						put(arrivals[i], ',');
+						put(boardings[i], ',');
+						put(alightings[i], ',');
+						put(elevators[i], '\n');
+					}
+					tail.lazySet(h);
+					out.write(buffer, 0, length);
+				}
+			}
+			catch(IOException e) {
+				failure = e;
+			}
+			finally {
+				try {
+					out.close();
+				}
+				catch(IOException e) {
+					if(failure == null) failure = e;
+				}
+			}
+		}
+
+		/**
+		 * Append a number and a separator to the buffer, without making a string.
+		 */
+		private void put(long value, char separator) {
+			if(value < 0) {
+				buffer[length ++] = '-';
+				value = -value;
+			}
+			int start = length;
+			do {
+				buffer[length ++] = (byte)('0' + value % 10);
+				value /= 10;
+			}
+			while(value > 0);
+			for(int i = start, j = length - 1; i < j; i ++, j --) {
+				byte b = buffer[i];
+				buffer[i] = buffer[j];
+				buffer[j] = b;
+			}
+			buffer[length ++] = (byte)separator;
+		}
+
+	}
+
+}
@@ -0,0 +1,433 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Phaser;
+
+/**
+ * A building served by several elevator banks, each covering some of the floors, such as low, mid and high rise zones
+ * with express shuttles between the ground floor and sky lobbies. People change banks on floors that two banks share.
+ *
+ * Each bank is its own simulation, run on its own thread. The banks run in epochs of a fixed number of updates
+ * and wait for each other at the end of every epoch. People changing banks are passed along bounded queues and
+ * join the next bank at the start of the next epoch, so changing banks takes up to an epoch, like walking across a sky lobby.
+ * If a queue is full, the people stay with the sending bank until the next epoch.
+ * Every queue has one sender and one receiver, and is only read once its sender has finished with it, so runs are repeatable.
+ */
+public class ZonedBuilding {
+
+	private static final int EPOCH_TICKS = 50; // Updates between exchanges of people changing banks
+	private static final int TRANSFER_CAPACITY = 256; // People one bank can pass to another per epoch
+	private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+	private int floors;
+	private SimulationRandom random;
+	private ArrayList<Bank> banks = new ArrayList<Bank>();
+	private int[][] hops; // Fewest rides from each bank to each floor
+	private int[][] nextFloor; // Where to ride to in each bank on the way to each floor
+	private int spawnInterval = 100; // Simulation ms
+	private double spawnProbability = .05, groupMemberProbability = .5;
+	private double nextSpawn = 0, time = 0; // Simulation ms
+	private long epoch = 0;
+
+	/**
+	 * @param floors how many floors the building has
+	 * @param seed the seed for the traffic and every bank's random choices
+	 */
+	public ZonedBuilding(int floors, long seed) {
+		this.floors = floors;
+		random = new SimulationRandom(seed);
+	}
+
+	/**
+	 * Make a building with a low rise zone served from the ground floor and higher zones served from sky lobbies,
+	 * with express shuttles from the ground floor to every sky lobby. Each sky lobby is the lowest floor of its zone.
+	 */
+	public static ZonedBuilding skyLobby(int zones, int floorsPerZone, int carsPerZone, int shuttles, long seed) {
+		if(zones < 1 || floorsPerZone < 1) throw new IllegalArgumentException("Need at least one zone of at least one floor");
+		ZonedBuilding b = new ZonedBuilding(zones * floorsPerZone + 1, seed);
+		int[] lobbies = new int[zones];
+		for(int z = 0; z < zones; z ++) {
+			int lowest = z == 0 ? 0 : z * floorsPerZone + 1;
+			int[] served = new int[(z + 1) * floorsPerZone + 1 - lowest];
+			for(int i = 0; i < served.length; i ++) served[i] = lowest + i;
+			b.addBank("zone " + z, carsPerZone, served);
+			lobbies[z] = lowest;
+		}
+		if(zones > 1) b.addBank("shuttle", shuttles, lobbies);
+		return b;
+	}
+
+	/**
+	 * Add a bank of elevators.
+	 * @param served the floors the bank serves, lowest first
+	 */
+	public Bank addBank(String name, int elevators, int... served) {
+		Bank b = new Bank(name, banks.size(), elevators, served);
+		banks.add(b);
+		hops = null;
+		return b;
+	}
+
+	public List<Bank> getBanks() {
+		return banks;
+	}
+
+	public int getNumberOfFloors() {
+		return floors;
+	}
+
+	public double getTime() {
+		return time;
+	}
+
+	public void setSpawnInterval(int ms) {
+		spawnInterval = ms;
+	}
+
+	public void setSpawnProbability(double p) {
+		spawnProbability = p;
+	}
+
+	public void setGroupMemberProbability(double p) {
+		groupMemberProbability = p;
+	}
+
+	/**
+	 * Get the times from arriving in the building to reaching the destination, in simulation ms.
+	 */
+	public Histogram getJourneyTimes() {
+		Histogram h = new Histogram(3600, 1000);
+		for(Bank b : banks) h.add(b.journeys);
+		return h;
+	}
+
+	/**
+	 * Run every bank on its own thread until the given simulation time, to the end of an epoch.
+	 */
+	public void runUntil(final double until) throws InterruptedException {
+		if(banks.isEmpty()) throw new IllegalStateException("The building has no elevator banks");
+		if(hops == null) {
+			route();
+			for(Bank b : banks) b.connect();
+		}
+		final double epochLength = EPOCH_TICKS * banks.get(0).simulation.getUpdateFrequency();
+		if(time >= until) return;
+		generate(time + epochLength);
+		final Throwable[] failure = new Throwable[1];
+		final Phaser phaser = new Phaser(banks.size()) {
+			protected boolean onAdvance(int phase, int parties) {
+
+				// Run by the last bank to finish the epoch while the others wait, so nothing else is running
+				time += epochLength;
+				epoch ++;
+				if(time >= until || failure[0] != null) return true;
+				for(Bank b : banks) b.consumed();
+				generate(time + epochLength);
+				return false;
+			}
+		};
+		Thread[] threads = new Thread[banks.size()];
+		for(int i = 0; i < threads.length; i ++) {
+			final Bank b = banks.get(i);
+			threads[i] = new Thread(() -> {
+				try {
+					for(long e = epoch; ; e ++) {
+						b.runEpoch((int)(e % 2), (e + 1) * epochLength);
+						phaser.arriveAndAwaitAdvance();
+						if(phaser.isTerminated()) break;
+					}
+				}
+				catch(Throwable t) {
+					synchronized(failure) {
+						if(failure[0] == null) failure[0] = t;
+					}
+					phaser.forceTermination();
+				}
+			}, "bank " + b.getName());
+			threads[i].start();
+		}
+		try {
+			for(Thread t : threads) t.join();
+		}
+		catch(InterruptedException e) {
+			phaser.forceTermination(); // Banks stop at the end of their epoch
+			throw e;
+		}
+		for(Bank b : banks) b.consumed();
+		if(failure[0] != null) throw new IllegalStateException("Bank failed", failure[0]);
+	}
+
+	/**
+	 * Work out the fewest rides from every bank to every floor, and which floor to ride to in each bank on the way.
+	 */
+	private void route() {
+		hops = new int[banks.size()][floors];
+		for(int[] h : hops) Arrays.fill(h, UNREACHABLE);
+		for(Bank b : banks) for(int f : b.floors) hops[b.index][f] = 1;
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			for(Bank b : banks) {
+				for(Bank c : banks) {
+					if(b == c || !b.meets(c)) continue;
+					for(int d = 0; d < floors; d ++) {
+						if(hops[c.index][d] + 1 < hops[b.index][d]) {
+							hops[b.index][d] = hops[c.index][d] + 1;
+							changed = true;
+						}
+					}
+				}
+			}
+		}
+		nextFloor = new int[banks.size()][floors];
+		for(Bank b : banks) {
+			for(int d = 0; d < floors; d ++) {
+				nextFloor[b.index][d] = -1;
+				if(b.local[d] >= 0) nextFloor[b.index][d] = d;
+				else if(hops[b.index][d] < UNREACHABLE) {
+					for(int f : b.floors) {
+						Bank c = getFirstBank(f, d);
+						if(c != b && hops[c.index][d] == hops[b.index][d] - 1) {
+							nextFloor[b.index][d] = f;
+							break;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the bank to start a journey in: the one with the fewest rides to go, or the first of those.
+	 */
+	private Bank getFirstBank(int origin, int destination) {
+		Bank best = null;
+		for(Bank b : banks) {
+			if(b.local[origin] >= 0 && (best == null || hops[b.index][destination] < hops[best.index][destination])) best = b;
+		}
+		if(best == null || hops[best.index][destination] >= UNREACHABLE) {
+			throw new IllegalStateException("No way from floor " + origin + " to floor " + destination);
+		}
+		return best;
+	}
+
+	/**
+	 * Create the people arriving in the building until the given time, in the same way as the single bank spawner:
+	 * groups either start on the ground floor and go up, or start on another floor and go down to the ground floor.
+	 */
+	private void generate(double until) {
+		if(spawnInterval < 1) return;
+		for(; nextSpawn < until; nextSpawn += spawnInterval) {
+			while(random.nextDouble() < spawnProbability) {
+				int origin = 0;
+				if(random.nextDouble() < .5) origin = (int)(random.nextDouble() * (floors - 1)) + 1;
+				int destination = 0;
+				if(origin == 0) destination = (int)(random.nextDouble() * (floors - 1)) + 1;
+				Bank b = getFirstBank(origin, destination);
+				do {
+					b.pending.add(b.createPassenger(origin, destination, (long)nextSpawn, (long)nextSpawn));
+				}
+				while(random.nextDouble() < groupMemberProbability);
+			}
+		}
+	}
+
+	/**
+	 * One bank of elevators and the floors it serves.
+	 */
+	public class Bank implements TripListener {
+
+		private String name;
+		private int index;
+		private int[] floors; // Building floor of each of the bank's floors
+		private int[] local; // The bank's floor for each building floor, or -1
+		private SimulationBase simulation;
+		private ArrayList<Passenger> pending = new ArrayList<Passenger>(); // People arriving in the building here, in time order
+		private int nextPending = 0;
+		private ArrayBlockingQueue<Passenger>[][] inboxes; // From each bank, one for each epoch parity
+		private ArrayDeque<Passenger>[] held; // Waiting for room in each bank's inbox
+		private int parity;
+		private Histogram journeys = new Histogram(3600, 1000);
+		private long transfers = 0, holds = 0;
+
+		private Bank(String name, int index, int elevators, int[] served) {
+			this.name = name;
+			this.index = index;
+			floors = served.clone();
+			local = new int[ZonedBuilding.this.floors];
+			Arrays.fill(local, -1);
+			for(int i = 0; i < floors.length; i ++) local[floors[i]] = i;
+			simulation = new SimulationBase(elevators, floors.length, random.nextLong());
+			simulation.getSpawner().setSpawnInterval(-1); // Everyone comes from the building
+			simulation.setTripListener(this);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Get the building floors the bank serves, lowest first.
+		 */
+		public int[] getFloors() {
+			return floors.clone();
+		}
+
+		/**
+		 * Get the bank's simulation, with floors numbered from the lowest the bank serves.
+		 */
+		public SimulationBase getSimulation() {
+			return simulation;
+		}
+
+		/**
+		 * Get how many people left this bank for another.
+		 */
+		public long getTransfers() {
+			return transfers;
+		}
+
+		/**
+		 * Get how many times someone had to wait an epoch for room in another bank's queue.
+		 */
+		public long getHolds() {
+			return holds;
+		}
+
+		private boolean meets(Bank b) {
+			for(int f : floors) if(b.local[f] >= 0) return true;
+			return false;
+		}
+
+		private Passenger createPassenger(int origin, int destination, long time, long journeyStart) {
+			return new Passenger(local[origin], local[nextFloor[index][destination]], time, destination, journeyStart);
+		}
+
+		/**
+		 * Make the queues to and from every other bank, before any bank runs.
+		 */
+		@SuppressWarnings("unchecked")
+		private void connect() {
+			inboxes = (ArrayBlockingQueue<Passenger>[][])new ArrayBlockingQueue<?>[banks.size()][2];
+			held = (ArrayDeque<Passenger>[])new ArrayDeque<?>[banks.size()];
+			for(int i = 0; i < banks.size(); i ++) {
+				inboxes[i][0] = new ArrayBlockingQueue<Passenger>(TRANSFER_CAPACITY);
+				inboxes[i][1] = new ArrayBlockingQueue<Passenger>(TRANSFER_CAPACITY);
+				held[i] = new ArrayDeque<Passenger>();
+			}
+		}
+
+		/**
+		 * Take in the people passed on in the last epoch, then run this epoch's updates, adding people as they arrive in the building.
+		 * Queues written in one epoch are read in the next, so a queue is never written and read at once.
+		 */
+		private void runEpoch(int parity, double until) {
+			this.parity = parity;
+			for(Bank sender : banks) {
+				Passenger p;
+				while((p = inboxes[sender.index][1 - parity].poll()) != null) {
+					int floor = sender.floors[p.getDestination()];
+					simulation.addPerson(createPassenger(floor, p.getFinalDestination(), (long)simulation.getTime(), p.getJourneyStart()));
+				}
+			}
+			for(Bank receiver : banks) {
+				ArrayDeque<Passenger> h = held[receiver.index];
+				while(!h.isEmpty() && receiver.inboxes[index][parity].offer(h.peek())) h.remove();
+			}
+			while(simulation.getTime() < until) {
+				while(nextPending < pending.size() && pending.get(nextPending).getTimeCreated() <= simulation.getTime()) {
+					simulation.addPerson(pending.get(nextPending ++));
+				}
+				simulation.step();
+			}
+		}
+
+		/**
+		 * Forget the people already added, between epochs.
+		 */
+		private void consumed() {
+			pending.subList(0, nextPending).clear();
+			nextPending = 0;
+		}
+
+		/**
+		 * Finish the journey, or pass the person on to the next bank.
+		 */
+		public void tripCompleted(Person p, int elevator, long time) {
+			Passenger q = (Passenger)p;
+			int floor = floors[q.getDestination()];
+			if(floor == q.getFinalDestination()) {
+				journeys.add(time - q.getJourneyStart());
+				return;
+			}
+			Bank receiver = getFirstBank(floor, q.getFinalDestination());
+			ArrayDeque<Passenger> h = held[receiver.index];
+			transfers ++;
+			if(!h.isEmpty() || !receiver.inboxes[index][parity].offer(q)) {
+				h.add(q);
+				holds ++;
+			}
+		}
+
+	}
+
+	/**
+	 * Someone on one leg of a journey through the building. Origin and destination are on the current bank's floors.
+	 */
+	private static class Passenger extends Person {
+
+		private int finalDestination; // Building floor
+		private long journeyStart; // Simulation ms
+
+		public Passenger(int origin, int destination, long time, int finalDestination, long journeyStart) {
+			super(origin, destination, time);
+			this.finalDestination = finalDestination;
+			this.journeyStart = journeyStart;
+		}
+
+		protected Person copy() {
+			return new Passenger(getOrigin(), getDestination(), getTimeCreated(), finalDestination, journeyStart);
+		}
+
+		public int getFinalDestination() {
+			return finalDestination;
+		}
+
+		public long getJourneyStart() {
+			return journeyStart;
+		}
+
+	}
+
+	/**
+	 * Usage: java ZonedBuilding [zones] [floors per zone] [cars per zone] [shuttles] [seconds] [seed]
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int zones = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		int floorsPerZone = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int cars = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+		int shuttles = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+		double seconds = args.length > 4 ? Double.parseDouble(args[4]) : 3600;
+		long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+
+		ZonedBuilding building = skyLobby(zones, floorsPerZone, cars, shuttles, seed);
+		long start = System.nanoTime();
+		building.runUntil(seconds * 1000);
+		double ms = (System.nanoTime() - start) / 1e6;
+
+		System.out.println(building.getNumberOfFloors() + " floors, " + building.getBanks().size() + " banks, " + building.getTime() / 1000 + " simulated seconds in " + Math.round(ms) + " ms");
+		for(Bank b : building.getBanks()) {
+			Statistics s = b.getSimulation().getStatistics();
+			BitSet served = new BitSet();
+			for(int f : b.getFloors()) served.set(f);
+			System.out.printf("%-8s floors %s: %d boarded, mean wait %.1f s, p95 wait %.0f s, %d passed on, %d held%n",
+					b.getName(), Elevator.formatFloors(served), s.getNumberBoarded(),
+					s.getMeanWaitTime() / 1000, s.getWaitTimePercentile(.95) / 1000, b.getTransfers(), b.getHolds());
+		}
+		Histogram j = building.getJourneyTimes();
+		System.out.printf("journeys: %d finished, mean %.1f s, p95 %.0f s%n", j.getCount(), j.getMean() / 1000, j.getPercentile(.95) / 1000);
+	}
+
+}
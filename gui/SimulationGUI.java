@@ -1,12 +1,14 @@
 import java.awt.Color;
-import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.function.Predicate;
 
-import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -14,7 +16,6 @@ import javax.swing.JPanel;
 import javax.swing.JSlider;
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
-import javax.swing.border.Border;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -26,9 +27,14 @@ public class SimulationGUI extends JFrame implements Runnable {
 	private SimulationBase b;
 	private BuildingPanel building;
 	private ControlPanel controls;
-	private int animationDelay = 20;
+	private int animationDelay = 20, idleDelay = 250; // ms between frames while anything moves, and while nothing does
+	private final int IDLE_FRAMES = 10; // Unchanged frames before slowing down
+	private int idleFrames = 0;
 	private Timer t;
-	private boolean forceOneToOneUpdates = true;
+	private Thread fastForward; // Runs the simulation headless while the display is detached, or null
+	private double fastForwardBy = 600000; // Simulation ms to fast-forward by, unless the condition holds first
+	private Predicate<SimulationBase> fastForwardUntil; // Or null
+	private final int FAST_FORWARD_FRAME_RATE = 4; // Frames shown per second while fast-forwarding
 	private final Color fgcolor = Color.white;
 	private final Color bgcolor = Color.black;
 	
@@ -48,7 +54,6 @@ public class SimulationGUI extends JFrame implements Runnable {
 	 * Start or restart the simulation.
 	 */
 	public void run() {
-		if(b.getUpdateFrequency() != animationDelay && forceOneToOneUpdates) b.setUpdateFrequency(animationDelay);
 		if(!t.isRunning()) {
 			b.run();
 			t.restart();
@@ -65,217 +70,325 @@ public class SimulationGUI extends JFrame implements Runnable {
 		}
 	}
 	
+	/**
+	 * Set how far the Fast Forward button goes.
+	 * @param by simulation ms to run ahead
+	 * @param until a condition that stops it sooner, or null
+	 */
+	public void setFastForward(double by, Predicate<SimulationBase> until) {
+		fastForwardBy = by;
+		fastForwardUntil = until;
+	}
+	
+	/**
+	 * Detach from the simulation and run it headless at full speed until the given simulation time or until a condition holds,
+	 * then attach again and continue in real time. The display shows a few frames a second meanwhile.
+	 * @param until simulation time in ms
+	 * @param stop the condition, or null
+	 */
+	public void fastForward(double until, Predicate<SimulationBase> stop) {
+		if(fastForward != null) return;
+		b.pause();
+		b.setFrameRate(FAST_FORWARD_FRAME_RATE);
+		fastForward = new Thread(() -> {
+			b.runUntil(until, stop);
+			Thread self = Thread.currentThread();
+			SwingUtilities.invokeLater(() -> {
+				if(fastForward == self) attach();
+			});
+		}, "fast forward");
+		fastForward.setDaemon(true);
+		fastForward.start();
+		t.restart();
+		controls.showFastForward(true);
+	}
+	
+	/**
+	 * Stop fast-forwarding, if it is, and continue in real time from where it got to.
+	 */
+	public void attach() {
+		if(fastForward == null) return;
+		fastForward.interrupt();
+		boolean interrupted = false;
+		while(fastForward.isAlive()) {
+			try {
+				fastForward.join();
+			}
+			catch(InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted) Thread.currentThread().interrupt();
+		fastForward = null;
+		b.setFrameRate(0);
+		setTitle("");
+		controls.showFastForward(false);
+		t.stop();
+		run();
+	}
+	
 	public void setAnimationDelay(int s) {
 		animationDelay = s;
+		if(idleFrames <= IDLE_FRAMES) t.setDelay(s);
 	}
 	
+	/**
+	 * Draws a frame at the display rate, independently of the simulation's update rate. Slows down while nothing on screen changes.
+	 */
 	private class TimerListener implements ActionListener {
 
 		public void actionPerformed(ActionEvent e) {
-			building.repaint();
-			controls.repaint();
+			if(fastForward != null) {
+				long s = (long)(b.getFrame().getTime() / 1000);
+				setTitle(String.format("Fast forwarding: %d:%02d:%02d", s / 3600, s / 60 % 60, s % 60));
+			}
+			if(building.update()) {
+				idleFrames = 0;
+				if(t.getDelay() != animationDelay) t.setDelay(animationDelay);
+			}
+			else if(++ idleFrames > IDLE_FRAMES && t.getDelay() != idleDelay) t.setDelay(idleDelay);
 		}
 		
 	}
 	
+	/**
+	 * Draws the whole building onto one image. Floors and shafts never change, so they are drawn once into a background image;
+	 * each update only redraws the parts of the picture where an elevator or a crowd changed.
+	 */
 	private class BuildingPanel extends JPanel {
 		
-		private int floors;
-		private ElevatorPanel[] elevators;
-		private int[] shaftLocations;
-		private int[] personLayout = new int[2];
-		private Dimension previousSize = new Dimension(0, 0);
-		private LayoutManager layoutManager = new LayoutManager();
+		private final int CROWD_THRESHOLD = 12; // More people than this on a floor are drawn as one crowd with a count
+		private int floors, numElevators;
+		private Frame frame; // What the canvas currently shows, apart from elevator positions
+		private Frame earlier; // The update before frame, to interpolate from
+		private double[] shown; // Elevator positions the canvas currently shows
+		private BufferedImage background, canvas;
+		private int[] personLayout = new int[2]; // Rows, columns of people in an elevator or on a platform
 		private int personSpacing = 4, personSizeX, personSizeY;
+		private double carWidth, floorHeight;
 		
 		public BuildingPanel() {
-			SwingUtilities.invokeLater(layoutManager);
 			setBackground(bgcolor);
 			floors = b.getNumberOfFloors();
-			int numElevators = b.getElevatorList().length;
-			elevators = new ElevatorPanel[numElevators];
-			for(int i = 0; i < numElevators; i ++) {
-				elevators[i] = new ElevatorPanel(b.getElevatorList()[i]);
-				add(elevators[i]);
-			}
-			shaftLocations = new int[elevators.length];
+			numElevators = b.getElevatorList().length;
 			addMouseListener(new ClickListener());
 		}
 		
 		protected void paintComponent(Graphics g) {
-			super.paintComponent(g);
-			checkForNewElevatorSize();
-			g.setColor(fgcolor);
-			draw(g);
-			for(int i = 0; i < elevators.length; i ++) {
-				shaftLocations[i] = (int)(getParent().getWidth() * (double)(2*i + 1) / (2 * elevators.length + 1)) + 1;
-				elevators[i].setX(shaftLocations[i]);
-				elevators[i].setSize((int)(getWidth() / (2 * elevators.length + 1)), (int)(getHeight() / floors));
-				elevators[i].repaint();
-			}
+			if(canvas == null || canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) rebuild();
+			if(canvas == null) return; // Not laid out yet
+			g.drawImage(canvas, 0, 0, null); // Only the clipped region is copied
 		}
-
+		
 		/**
-		 * Compare the previous size with the current size to see if we need a new layout.
+		 * Bring the picture up to date with the simulation, redrawing only what changed.
+		 * @return whether anything changed
 		 */
-		private void checkForNewElevatorSize() {
-			if(!elevators[0].getSize().equals(previousSize)) {
-				layoutManager.getNewLayout();
-				previousSize = elevators[0].getSize();
+		public boolean update() {
+			if(canvas == null) return false;
+			Frame next = b.getFrame();
+			if(next != frame) earlier = fastForward == null ? frame : null; // Frames while fast-forwarding are far apart, so jump between them
+			double[] positions = interpolate(earlier, next, System.nanoTime());
+			
+			// Find what changed before switching over, then redraw it from the new state
+			ArrayList<Rectangle> dirty = new ArrayList<Rectangle>();
+			for(int i = 0; i < numElevators; i ++) {
+				if(shown[i] != positions[i] || !frame.getStatus(i).equals(next.getStatus(i)) || !sameOccupants(frame, next, i)) {
+					dirty.add(getCarBounds(shown[i], i).union(getCarBounds(positions[i], i)));
 				}
 			}
+			for(int f = 0; f < floors; f ++) {
+				if(frame.getQueueLength(f) != next.getQueueLength(f)) dirty.add(getFloorBounds(f));
+			}
+			frame = next;
+			shown = positions;
+			for(Rectangle r : dirty) redraw(r);
+			return !dirty.isEmpty();
+		}
 		
 		/**
-		 * Draw floors and people waiting.
-		 * @param g
+		 * Get where the elevators are between two updates, drawing one update behind the simulation so that motion is smooth at any update rate.
 		 */
-		public void draw(Graphics g) {
-			
-			// Draw average wait time
-//			g.drawString(String.valueOf(b.getAverageWaitTime()), getWidth() / 2, 10);
+		private double[] interpolate(Frame from, Frame to, long now) {
+			double[] positions = new double[numElevators];
+			double alpha = 1;
+			if(from != null && to.getPublished() > from.getPublished()) alpha = Math.min(1, (double)(now - to.getPublished()) / (to.getPublished() - from.getPublished()));
+			for(int i = 0; i < numElevators; i ++) {
+				if(from == null) positions[i] = to.getPosition(i);
+				else positions[i] = from.getPosition(i) + (to.getPosition(i) - from.getPosition(i)) * alpha;
+			}
+			return positions;
+		}
+		
+		private boolean sameOccupants(Frame a, Frame c, int e) {
+			if(a.getNumberOfOccupants(e) != c.getNumberOfOccupants(e)) return false;
+			for(int i = 0; i < a.getNumberOfOccupants(e); i ++) if(a.getOccupantDestination(e, i) != c.getOccupantDestination(e, i)) return false;
+			return true;
+		}
+		
+		/**
+		 * Lay out the building for the current size and draw everything from scratch.
+		 */
+		private void rebuild() {
+			if(getWidth() <= 0 || getHeight() <= 0) return;
+			carWidth = (double)getWidth() / (2 * numElevators + 1);
+			floorHeight = (double)getHeight() / floors;
+			updateLayout();
 			
-			// Draw floor lines
+			// Floor lines on each platform between the shafts
+			background = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+			Graphics g = background.getGraphics();
+			g.setColor(bgcolor);
+			g.fillRect(0, 0, getWidth(), getHeight());
+			g.setColor(fgcolor);
 			for(int i = 0; i < floors; i ++) {
 				int drawHeight = (int)(((double)(i + 1) / (floors)) * getHeight());
-				g.drawLine(0, drawHeight, shaftLocations[0], drawHeight);
-//				g.drawString(String.valueOf(b.getNumberOfPeopleOnFloor(i)), shaftLocations[0] / 2, getHeight() - (int)(((i + .5) / (floors)) * getHeight()));
-				for(int j = 1; j < elevators.length; j ++) {
-					g.drawLine(shaftLocations[j] - elevators[j - 1].getWidth(), drawHeight, shaftLocations[j], drawHeight);
-				}
-				g.drawLine(getWidth() - elevators[elevators.length - 1].getWidth(), drawHeight, getWidth(), drawHeight);
-				
-				//Draw people waiting
-				if(!b.getPeopleOnFloor(i).isEmpty()) {
-					int row = 0, col = 0, pl = 0 /* platform number */, x, y, platformWidth = shaftLocations[0];
-					for(Person p : b.getPeopleOnFloor(i)) {
-						
-						// Draw person
-						if(pl < elevators.length) x = shaftLocations[pl] - platformWidth + (col + 1) * personSpacing + col * personSizeX;
-						else x = getWidth() - platformWidth + (col + 1) * personSpacing + col * personSizeX;
-						y = getHeight() + getHeight() / floors - (drawHeight + ((row + 1) * personSpacing + row * personSizeY) - 1);
-						g.drawRect(x, y - personSizeY, personSizeX, personSizeY);
-						
-						// Check for new platfom, row, column
-							if(col < personLayout[1] - 1) col ++;
-							else {
-								col = 0;
-								if(pl < elevators.length) pl ++;
-								else {
-									pl = 0;
-									if(row < personLayout[0] - 1) row ++;
-									else row = 0;
-								}
-							}
-						}
-					}
-				
+				for(int p = 0; p <= numElevators; p ++) g.drawLine(getPlatformX(p), drawHeight, getPlatformX(p) + (int)carWidth, drawHeight);
 			}
+			g.dispose();
 			
+			canvas = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+			if(frame == null) {
+				frame = b.getFrame();
+				shown = interpolate(null, frame, 0);
+			}
+			redraw(new Rectangle(0, 0, getWidth(), getHeight()));
 		}
 		
-		private class ElevatorPanel extends JPanel {
+		/**
+		 * Redraw one region of the canvas from the background and the current frame, and ask for it to be shown.
+		 */
+		private void redraw(Rectangle r) {
+			r = r.intersection(new Rectangle(0, 0, canvas.getWidth(), canvas.getHeight()));
+			if(r.isEmpty()) return;
+			Graphics g = canvas.getGraphics();
+			g.setClip(r);
+			g.drawImage(background, 0, 0, null);
+			g.setColor(fgcolor);
 			
-			private Elevator e = new Elevator();
-			private Border border = BorderFactory.createLineBorder(Color.green);
-			private Border waitBorder = BorderFactory.createLineBorder(Color.yellow);
-			private int x;
-			private int[] layout = new int[2];
+			// People waiting, only on floors inside the region
+			int lowest = Math.max(0, (int)((getHeight() - r.y - r.height) / floorHeight) - 1);
+			int highest = Math.min(floors - 1, (int)((getHeight() - r.y) / floorHeight) + 1);
+			for(int f = lowest; f <= highest; f ++) drawWaiting(g, f);
 			
-			public ElevatorPanel(Elevator e) {
-				this.e = e;
-				setBackground(bgcolor);
-				setBorder(border);
+			// Elevators inside the region
+			for(int i = 0; i < numElevators; i ++) {
+				if(getCarBounds(shown[i], i).intersects(r)) drawCar(g, i);
 			}
-			
-			protected void paintComponent(Graphics g) {
-				super.paintComponent(g);
-				g.setColor(fgcolor);
-				draw(g);
+			g.dispose();
+			repaint(r);
+		}
+		
+		/**
+		 * Draw the people waiting on a floor, one box per person spread over the platforms, or one box with a count for a crowd.
+		 */
+		private void drawWaiting(Graphics g, int floor) {
+			int n = frame.getQueueLength(floor);
+			if(n == 0) return;
+			int drawHeight = (int)(((double)(floors - floor) / floors) * getHeight());
+			if(n > CROWD_THRESHOLD || personSizeX < 2 || personSizeY < 2) {
+				int inset = (int)Math.min(personSpacing, floorHeight / 4); // Stay inside the floor, which is all that is redrawn when the crowd changes
+				int h = Math.max(1, (int)floorHeight - 2 * inset);
+				g.fillRect(inset, drawHeight - inset - h, (int)carWidth - 2 * inset, h);
+				if(floorHeight > 16) {
+					g.setColor(bgcolor);
+					g.drawString(String.valueOf(n), 2 * personSpacing, drawHeight - inset - h / 2 + 5);
+					g.setColor(fgcolor);
+				}
+				return;
 			}
-			
-			/**
-			 * Draw elevator and occupants.
-			 * @param g
-			 */
-			public void draw(Graphics g) {
-				
-				// Draw elevator
-				int parentHeight = getParent().getHeight();
-				setLocation(x, (int)(parentHeight - (e.getPosition() + 1) / b.getNumberOfFloors() * parentHeight));
-//				g.drawString(String.valueOf(e.getPosition()), getWidth() / 2, getHeight() / 2);
+			int row = 0, col = 0, pl = 0 /* platform number */;
+			for(int p = 0; p < n; p ++) {
+				int x = getPlatformX(pl) + (col + 1) * personSpacing + col * personSizeX;
+				int y = drawHeight - ((row + 1) * personSpacing + row * personSizeY) - 1;
+				g.drawRect(x, y - personSizeY, personSizeX, personSizeY);
 				
-				// Draw number of people
-//				g.drawString(String.valueOf(e.getOccupants().size()), getWidth() / 2, getHeight() / 2);
-				
-				// Draw up and down arrows
-//				if(e.getDirection() != null) {
-//					if(e.getDirection().equals("up")) g.drawString("^", getWidth() / 2, getHeight() / 2 - 10);
-//					if(e.getDirection().equals("down")) g.drawString("v", getWidth() / 2, getHeight() / 2 + 10);
-//				}
-				
-				// Draw occupants
-				if(!e.getOccupants().isEmpty());
-					int i = 0, j = 0, x, y;
-					for(Person p : e.getOccupants()) {
-						
-						// Draw person
-						x = (j + 1) * personSpacing + j * personSizeX;
-						y = getHeight() - ((i + 1) * personSpacing + i * personSizeY) - 1;
-						g.drawRect(x, y - personSizeY, personSizeX, personSizeY);
-						
-						// Draw destination on person (if large enough to show)
-						if(personSizeX > 10 && personSizeY > 15) {
-							g.drawString(String.valueOf(p.getDestination()), x + personSizeX / 2 - 3, y - personSizeY / 2 + 4);
-						}
-						
-						// Check for new row, column
-						if(j < layout[1] - 1) j ++;
-						else {
-							j = 0;
-							if(i < layout[0] - 1) i ++;
-							else i = 0;
-						}
+				// Check for new platform, row, column
+				if(col < personLayout[1] - 1) col ++;
+				else {
+					col = 0;
+					if(pl < numElevators) pl ++;
+					else {
+						pl = 0;
+						if(row < personLayout[0] - 1) row ++;
+						else row = 0;
 					}
-				
-				// Color border if waiting
-				if(e.getStatus().equals("waiting") && getBorder().equals(border)) setBorder(waitBorder);
-				if(getBorder().equals(waitBorder) && !e.getStatus().equals("waiting")) setBorder(border);
+				}
 			}
-			
-			public void setX(int value) {x = value;}
-			
-			public void setLayout(int[] l) {layout = l;}
-			
 		}
 		
 		/**
-		 * Manages the layout of the people inside each elevator.
+		 * Draw an elevator and its occupants, with a yellow outline while its doors are open.
 		 */
-		private class LayoutManager extends Thread {
-			
-			public void run() {
-				
+		private void drawCar(Graphics g, int e) {
+			Rectangle bounds = getCarBounds(shown[e], e);
+			g.setColor(frame.getStatus(e).equals("waiting") ? Color.yellow : Color.green);
+			g.drawRect(bounds.x, bounds.y, bounds.width - 1, bounds.height - 1);
+			g.setColor(fgcolor);
+			int n = frame.getNumberOfOccupants(e);
+			if(n > personLayout[0] * personLayout[1] || personSizeX < 2 || personSizeY < 2) {
+				if(n > 0 && bounds.width > 16 && bounds.height > 16) g.drawString(String.valueOf(n), bounds.x + bounds.width / 2 - 3, bounds.y + bounds.height / 2 + 4);
+				return;
 			}
-			
-			public void getNewLayout() {
-				int rows = 0, cols = 0, c = elevators[0].e.getCapacity();
-				double r = (double)getHeight() / getWidth();
-				while(rows < c + 1) {
-					rows ++;
-					if(c % rows == 0) cols = c / rows;
-					if((double)rows / cols >= r && rows * cols == c) break;
+			int i = 0, j = 0;
+			for(int p = 0; p < n; p ++) {
+				int x = bounds.x + (j + 1) * personSpacing + j * personSizeX;
+				int y = bounds.y + bounds.height - ((i + 1) * personSpacing + i * personSizeY) - 1;
+				g.drawRect(x, y - personSizeY, personSizeX, personSizeY);
+				
+				// Draw destination on person (if large enough to show)
+				if(personSizeX > 10 && personSizeY > 15) {
+					g.drawString(String.valueOf(frame.getOccupantDestination(e, p)), x + personSizeX / 2 - 3, y - personSizeY / 2 + 4);
+				}
+				
+				// Check for new row, column
+				if(j < personLayout[1] - 1) j ++;
+				else {
+					j = 0;
+					if(i < personLayout[0] - 1) i ++;
+					else i = 0;
 				}
-				personLayout[0] = rows;
-				personLayout[1] = cols;
-				for(ElevatorPanel p : elevators) p.setLayout(personLayout);
-				updatePersonSize();
 			}
-			
-			private void updatePersonSize() {
-				personSizeX = (int)((elevators[0].getWidth() - personSpacing * (personLayout[1] + 1)) / (double)personLayout[1]);
-				personSizeY = (int)((elevators[0].getHeight() - personSpacing * (personLayout[0] + 1)) / (double)personLayout[0]);
+		}
+		
+		private Rectangle getCarBounds(double position, int e) {
+			int x = (int)(getWidth() * (double)(2 * e + 1) / (2 * numElevators + 1)) + 1;
+			int y = (int)(getHeight() - (position + 1) / floors * getHeight());
+			return new Rectangle(x, y, (int)carWidth, (int)floorHeight);
+		}
+		
+		/**
+		 * Get the strip of the building between a floor's line and the one above it.
+		 */
+		private Rectangle getFloorBounds(int floor) {
+			int top = (int)(((double)(floors - floor - 1) / floors) * getHeight());
+			int bottom = (int)(((double)(floors - floor) / floors) * getHeight());
+			return new Rectangle(0, top, getWidth(), bottom - top + 1);
+		}
+		
+		/**
+		 * Get the left edge of a platform. Platforms are the spaces beside the shafts, one more than there are elevators.
+		 */
+		private int getPlatformX(int p) {
+			return (int)(getWidth() * (double)(2 * p) / (2 * numElevators + 1));
+		}
+		
+		/**
+		 * Arrange people in rows and columns so that a full elevator fits its shape.
+		 */
+		private void updateLayout() {
+			int rows = 0, cols = 0, c = 0;
+			for(Elevator e : b.getElevatorList()) c = Math.max(c, e.getCapacity()); // Big enough for the biggest car
+			double r = floorHeight / carWidth;
+			while(rows < c + 1) {
+				rows ++;
+				if(c % rows == 0) cols = c / rows;
+				if((double)rows / cols >= r && rows * cols == c) break;
 			}
-			
+			personLayout[0] = rows;
+			personLayout[1] = cols;
+			personSizeX = (int)((carWidth - personSpacing * (personLayout[1] + 1)) / (double)personLayout[1]);
+			personSizeY = (int)((floorHeight - personSpacing * (personLayout[0] + 1)) / (double)personLayout[0]);
 		}
 		
 		/**
@@ -284,7 +397,7 @@ public class SimulationGUI extends JFrame implements Runnable {
 		private class ClickListener implements MouseListener {
 
 			public void mouseClicked(MouseEvent e) {
-				int floor = (int)((getParent().getHeight() - (double)e.getY()) / getParent().getHeight() * b.getNumberOfFloors());
+				int floor = (int)((getHeight() - (double)e.getY()) / getHeight() * b.getNumberOfFloors());
 				System.out.println(floor);
 				if(floor > -1 && floor < b.getNumberOfFloors()) b.callElevatorToFloor(floor);
 			}
@@ -336,6 +449,7 @@ public class SimulationGUI extends JFrame implements Runnable {
 		private JLabel waitTimeValue;
 		
 		private JButton pauseButton = new JButton("Pause");
+		private JButton fastForwardButton = new JButton("Fast Forward");
 		
 		private ControlPanel() {
 			
@@ -366,6 +480,7 @@ public class SimulationGUI extends JFrame implements Runnable {
 			//Create and add button listener
 			ButtonListener btnListen = new ButtonListener();
 			pauseButton.addActionListener(btnListen);
+			fastForwardButton.addActionListener(btnListen);
 			
 			setLayout();
 			
@@ -412,7 +527,11 @@ public class SimulationGUI extends JFrame implements Runnable {
 		private class ButtonListener implements ActionListener {
 		
 			 public void actionPerformed(ActionEvent e) {
-                if(t.isRunning()) {
+				if(e.getSource().equals(fastForwardButton)) {
+					if(fastForward != null) attach();
+					else fastForward(b.getTime() + fastForwardBy, fastForwardUntil);
+				}
+				else if(t.isRunning()) {
 					pause();
 					pauseButton.setText("Resume");
 				}
@@ -423,6 +542,15 @@ public class SimulationGUI extends JFrame implements Runnable {
             }
 		}
 		
+		/**
+		 * Switch the buttons between fast-forwarding, when the only choice is to attach again, and running in real time.
+		 */
+		private void showFastForward(boolean on) {
+			fastForwardButton.setText(on ? "Attach" : "Fast Forward");
+			pauseButton.setText("Pause");
+			pauseButton.setEnabled(!on);
+		}
+		
 		private void setLayout() {
 		
 			javax.swing.GroupLayout layout = new javax.swing.GroupLayout(getContentPane());
@@ -456,9 +584,11 @@ public class SimulationGUI extends JFrame implements Runnable {
 						.addComponent(timeScaleValue))
 					.addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
 				.addGroup(javax.swing.GroupLayout.Alignment.TRAILING, layout.createSequentialGroup()
-					.addContainerGap(173, Short.MAX_VALUE)
+					.addContainerGap(100, Short.MAX_VALUE)
 					.addComponent(pauseButton)
-					.addGap(117, 117, 117))
+					.addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+					.addComponent(fastForwardButton)
+					.addGap(70, 70, 70))
 			);
 			layout.setVerticalGroup(
 				layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
@@ -495,7 +625,9 @@ public class SimulationGUI extends JFrame implements Runnable {
 						.addComponent(timeScaleLabel)
 						.addComponent(timeScaleValue))
 					.addGap(18, 18, 18)
-					.addComponent(pauseButton)
+					.addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+						.addComponent(pauseButton)
+						.addComponent(fastForwardButton))
 					.addContainerGap())
 			);
 
@@ -0,0 +1,46 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.function.Predicate;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs the simulation.
+ * Change parameters here to adjust # of elevators and floors.
+ * Pass a file name to record the session for Replay.
+ *
+ * Usage: java Simulator [session.log] [--until seconds] [--queue people] [--wait seconds]
+ *
+ * --until fast-forwards to a simulated time before showing the simulation in real time, and --queue and --wait stop fast-forwarding
+ * as soon as more people wait on one floor or someone waits longer. They also set how far the Fast Forward button goes.
+ */
+public class Simulator {
+	
+	private static SimulationBase base = new SimulationBase(4, 10); // elevators, floors
+
+	public static void main(String[] args) throws IOException {
+		double until = -1;
+		Predicate<SimulationBase> stop = null;
+		for(int i = 0; i < args.length; i ++) {
+			if(args[i].equals("--until")) until = Double.parseDouble(args[++ i]) * 1000;
+			else if(args[i].equals("--queue")) stop = or(stop, SimulationBase.queueAbove(Integer.parseInt(args[++ i])));
+			else if(args[i].equals("--wait")) stop = or(stop, SimulationBase.waitAbove(Double.parseDouble(args[++ i]) * 1000));
+			else base.setEventLog(new EventLog(new FileWriter(args[i])));
+		}
+		SimulationGUI gui = new SimulationGUI(base);
+		if(until < 0 && stop == null) {
+			base.run();
+			SwingUtilities.invokeLater(gui);
+			return;
+		}
+		double target = until >= 0 ? until : Double.POSITIVE_INFINITY; // The run starts at 0, so this is also how far the button goes
+		Predicate<SimulationBase> condition = stop;
+		gui.setFastForward(target, condition);
+		SwingUtilities.invokeLater(() -> gui.fastForward(target, condition));
+	}
+	
+	private static Predicate<SimulationBase> or(Predicate<SimulationBase> a, Predicate<SimulationBase> b) {
+		return a == null ? b : a.or(b);
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Builds a policy table on a fleet whose cars stop at different floors, then checks that the table sends the same car the rollouts chose
+ * in states where the cars that may be sent are fewer than those stopping at the calling floor, so that a slot means the same car
+ * when the table is built and when it is looked up.
+ *
+ * Usage: java PolicyTableTest
+ */
+public class PolicyTableTest {
+
+	private static final int MIN_SAMPLES = 3; // As PolicyTable needs to keep a state
+
+	public static void main(String[] args) throws Exception {
+		Scenario scenario = new Scenario();
+		scenario.set("elevators=4");
+		scenario.set("elevator.0.floors=0-4");
+		scenario.set("elevator.1.floors=0,5-9");
+		scenario.set("spawnProbability=0.2");
+
+		Recorder builder = new Recorder();
+		builder.setHorizon(20000);
+		try {
+			for(int seed = 1; seed <= 2; seed ++) {
+				scenario.set("seed", String.valueOf(seed));
+				SimulationBase s = scenario.build();
+				s.setDispatcher(builder);
+				s.runUntil(900000);
+			}
+		}
+		finally {
+			builder.shutdown();
+		}
+		File file = File.createTempFile("policy", ".bin");
+		file.deleteOnExit();
+		builder.build().save(file);
+		PolicyTable table = PolicyTable.load(file);
+
+		// Only states where the rollouts always chose the same slot have a single right answer
+		int checked = 0;
+		for(Decision d : builder.decisions) {
+			int[] slots = builder.slots.get(d.key);
+			int total = 0, chosen = 0;
+			for(int n : slots) total += n;
+			for(int n : slots) if(n > 0) chosen ++;
+			if(total < MIN_SAMPLES || chosen > 1) continue;
+			int i = table.choose(d.state, d.floor, d.direction, d.allowed);
+			if(i != d.chosen) fail("the table sent elevator " + i + " to floor " + d.floor + " going " + d.direction + " where the rollouts sent " + d.chosen);
+			checked ++;
+		}
+		if(checked == 0) fail("no state with fewer allowed elevators than serve the floor was seen often enough to check");
+		System.out.println("ok: " + table.size() + " states, " + checked + " decisions with fewer allowed elevators than serve the floor matched");
+	}
+
+	/**
+	 * One decision the rollouts made, with a copy of the simulation as it was.
+	 */
+	private static class Decision {
+
+		private SimulationBase state;
+		private int floor, chosen, key;
+		private String direction;
+		private BitSet allowed;
+
+	}
+
+	/**
+	 * Builds a table while counting which of the nearest allowed elevators the rollouts chose in each state,
+	 * and keeping the decisions where some elevators serving the floor were not allowed.
+	 */
+	private static class Recorder extends PolicyTable.Builder {
+
+		private ArrayList<Decision> decisions = new ArrayList<Decision>();
+		private HashMap<Integer, int[]> slots = new HashMap<Integer, int[]>();
+
+		public int choose(SimulationBase s, int floor, String direction, BitSet allowed) {
+			int[] nearest = PolicyTable.getNearest(s.getElevatorList(), floor, allowed);
+			int key = PolicyTable.getKey(s, floor, direction, nearest);
+			int chosen = super.choose(s, floor, direction, allowed);
+			for(int i = 0; i < nearest.length; i ++) if(chosen >= 0 && nearest[i] == chosen) slots.computeIfAbsent(key, k -> new int[nearest.length])[i] ++;
+			if(chosen >= 0 && !allowed.equals(s.getElevatorsServing(floor))) {
+				Decision d = new Decision();
+				d.state = s.fork();
+				d.floor = floor;
+				d.direction = direction;
+				d.allowed = (BitSet)allowed.clone();
+				d.chosen = chosen;
+				d.key = key;
+				decisions.add(d);
+			}
+			return chosen;
+		}
+
+	}
+
+	private static void fail(String message) {
+		System.out.println("FAILED: " + message);
+		System.exit(1);
+	}
+
+}
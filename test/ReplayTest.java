@@ -0,0 +1,54 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Random;
+
+/**
+ * Records a session driven by people added from outside and by calls with a direction, as from another bank or a traffic file,
+ * writes it to a file and checks that replaying the file matches the recording. Then checks that leaving those inputs out is caught.
+ *
+ * Usage: java ReplayTest
+ */
+public class ReplayTest {
+
+	public static void main(String[] args) throws Exception {
+		File file = File.createTempFile("session", ".log");
+		file.deleteOnExit();
+		FileWriter w = new FileWriter(file);
+		SimulationBase s = new SimulationBase(4, 10, 7);
+		s.setEventLog(new EventLog(w));
+		Random r = new Random(7);
+		for(double time = 500; time <= 600000; time += 500) {
+			int origin = r.nextInt(10), destination = (origin + 1 + r.nextInt(9)) % 10;
+			if(r.nextDouble() < .3) s.addPerson(new Person(origin, destination, (long)s.getTime()));
+			if(r.nextDouble() < .05) s.callElevatorToFloor(origin, origin < destination ? "up" : "down");
+			if(r.nextDouble() < .02) s.callElevatorToFloor(origin);
+			s.runUntil(time);
+		}
+		w.close();
+
+		EventLog recorded = EventLog.read(file);
+		int people = 0, directed = 0;
+		for(int i = 0; i < recorded.size(); i ++) {
+			EventLog.Event e = recorded.get(i);
+			if(e.getType().equals("person")) people ++;
+			if(e.getType().equals("call") && e.getData().contains(" ")) directed ++;
+		}
+		if(people == 0 || directed == 0) fail("recorded " + people + " people and " + directed + " calls with a direction");
+		Replay.Divergence d = new Replay(recorded).runToEnd();
+		if(d != null) fail("replay diverged: " + d);
+
+		EventLog stripped = new EventLog();
+		for(int i = 0; i < recorded.size(); i ++) {
+			EventLog.Event e = recorded.get(i);
+			if(!e.getType().equals("person")) stripped.record(e.getTick(), e.getType(), e.getData());
+		}
+		if(new Replay(stripped).runToEnd() == null) fail("replay without the people added still matched");
+		System.out.println("ok: " + recorded.size() + " events with " + people + " people and " + directed + " calls with a direction replayed");
+	}
+
+	private static void fail(String message) {
+		System.out.println("FAILED: " + message);
+		System.exit(1);
+	}
+
+}
@@ -0,0 +1,464 @@
+import java.io.File;
+import java.util.Arrays;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Experimental engine that runs many replicas of one scenario at once, for Monte Carlo sweeps.
+ *
+ * Every car of every replica is a lane in flat arrays of doubles: position, speed, destination, halfway point, wait and phase.
+ * Each update moves all lanes together with vector operations, using masks for the branches of Elevator.move.
+ * The rare events (picking the next destination, passing a stop on the way, letting people out) are picked out by mask and done one lane at a time,
+ * as are spawning, dispatch and boarding, which differ between replicas. Every step is done in the same order and with the same arithmetic
+ * as SimulationBase with heuristic dispatch, so replica n gives exactly the same statistics as the scalar engine with seed + n.
+ *
+ * Needs --add-modules jdk.incubator.vector, and buildings of at most 64 floors.
+ *
+ * Usage: java --add-modules jdk.incubator.vector VectorReplicas &lt;scenario file&gt; [replicas] [key=value ...]
+ */
+public class VectorReplicas {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final double UP = 0, DOWN = 1, WAITING = 2, STOPPED = 3; // Elevator statuses, as lane values
+	private static final double ACCELERATION = 1, MIN_SPEED = .1; // As in Elevator
+	private static final double NONE = Double.POSITIVE_INFINITY; // First stop of a car with no destinations; the last is -NONE
+
+	private int replicas, cars, floors, lanes; // Lane r * cars + i is car i of replica r; lanes past the last car are padding and never move
+	private int capacity;
+	private double waitTime, tickLength, acceleration, minSpeed, waitStep; // As worked out by Elevator for the scenario's settings
+	private int updateFrequency, spawnInterval;
+	private double spawnProbability, groupMemberProbability;
+	private double time = 0, sinceLastSpawn = 0; // Simulation ms, the same in every replica
+
+	private double[] phase, position, speed, destination, halfway, waitRemaining, firstStop, lastStop, unloadDue;
+	private long[] stops; // Bit f is set when the car is to go to floor f
+	private int[] numOccupants, occupantDestinations; // capacity slots per lane
+	private long[] occupantTimes; // When each occupant arrived in the building
+	private SimulationRandom[] carRandom, random;
+	private Queue[] queues; // Replica r's floor f is queues[r * floors + f]
+	private int[] numWaiting; // People waiting anywhere in each replica
+	private Statistics[] statistics;
+	private double[] picked = new double[SPECIES.length()]; // Lanes of the vector being updated that need handling one at a time
+
+	/**
+	 * Set up replicas of a scenario, with seeds counting up from its own.
+	 * @throws IllegalArgumentException if the scenario doesn't use heuristic dispatch, gives elevators settings of their own, parks them, or has more than 64 floors
+	 */
+	public VectorReplicas(Scenario scenario, int replicas) {
+		if(!scenario.get("dispatch").equals("heuristic")) throw new IllegalArgumentException("Only heuristic dispatch is supported");
+		if(scenario.isHeterogeneous()) throw new IllegalArgumentException("Only fleets of identical elevators are supported");
+		if(scenario.getDouble("parking") > 0) throw new IllegalArgumentException("Parking is not supported");
+		floors = scenario.getInt("floors");
+		if(floors > 64) throw new IllegalArgumentException("At most 64 floors are supported");
+		this.replicas = replicas;
+		cars = scenario.getInt("elevators");
+		capacity = scenario.getInt("capacity");
+		waitTime = Math.max(scenario.getInt("loadingWaitTime"), 0);
+		updateFrequency = scenario.getInt("updateFrequency");
+		spawnInterval = scenario.getInt("spawnInterval");
+		spawnProbability = scenario.getDouble("spawnProbability");
+		groupMemberProbability = scenario.getDouble("groupMemberProbability");
+		tickLength = (double)updateFrequency / 1000;
+		double step = tickLength * 1;
+		acceleration = ACCELERATION * step * step;
+		minSpeed = MIN_SPEED * step;
+		waitStep = tickLength * 1000 * 1;
+
+		lanes = SPECIES.loopBound(replicas * cars + SPECIES.length() - 1);
+		phase = filled(STOPPED);
+		position = filled(0);
+		speed = filled(0);
+		destination = filled(0);
+		halfway = filled(0);
+		waitRemaining = filled(0);
+		firstStop = filled(NONE);
+		lastStop = filled(-NONE);
+		unloadDue = filled(0);
+		stops = new long[lanes];
+		numOccupants = new int[lanes];
+		occupantDestinations = new int[lanes * capacity];
+		occupantTimes = new long[lanes * capacity];
+
+		carRandom = new SimulationRandom[replicas * cars];
+		random = new SimulationRandom[replicas];
+		queues = new Queue[replicas * floors];
+		numWaiting = new int[replicas];
+		statistics = new Statistics[replicas];
+		long seed = scenario.getLong("seed");
+		for(int r = 0; r < replicas; r ++) {
+			random[r] = new SimulationRandom(seed + r);
+			for(int i = 0; i < cars; i ++) carRandom[r * cars + i] = new SimulationRandom(random[r].nextLong());
+			for(int f = 0; f < floors; f ++) queues[r * floors + f] = new Queue();
+			statistics[r] = new Statistics();
+		}
+	}
+
+	private double[] filled(double value) {
+		double[] a = new double[lanes];
+		Arrays.fill(a, value);
+		return a;
+	}
+
+	/**
+	 * Run a scenario's replicas from start to finish, as Scenario.run would run each. Statistics are only kept after the warm-up.
+	 * @return each replica's statistics, in seed order
+	 * @throws InterruptedException if the thread is interrupted, which cancels the run
+	 */
+	public static Statistics[] run(Scenario scenario, int replicas) throws InterruptedException {
+		VectorReplicas v = new VectorReplicas(scenario, replicas);
+		double warmup = scenario.getDouble("warmup") * 1000;
+		v.runUntil(warmup);
+		for(Statistics s : v.statistics) s.clear();
+		v.runUntil(warmup + scenario.getDouble("duration") * 1000);
+		if(Thread.interrupted()) throw new InterruptedException();
+		return v.statistics;
+	}
+
+	/**
+	 * Run every replica until the given simulation time. Stops early if the thread is interrupted.
+	 * @param until simulation time in ms
+	 */
+	public void runUntil(double until) {
+		while(time < until && !Thread.currentThread().isInterrupted()) step();
+	}
+
+	public Statistics getStatistics(int replica) {
+		return statistics[replica];
+	}
+
+	/**
+	 * Advance every replica by one update.
+	 */
+	public void step() {
+		time += updateFrequency * 1.0;
+		if(spawnInterval >= 1) {
+			sinceLastSpawn += updateFrequency * 1.0;
+			while(sinceLastSpawn >= spawnInterval) {
+				sinceLastSpawn -= spawnInterval;
+				for(int r = 0; r < replicas; r ++) spawn(r);
+			}
+		}
+		move();
+		for(int r = 0; r < replicas; r ++) {
+			if(numWaiting[r] == 0) continue;
+			for(int i = r * cars; i < (r + 1) * cars; i ++) if(speed[i] == 0) load(r, i);
+		}
+	}
+
+	/**
+	 * Elevator.update for every lane at once.
+	 */
+	private void move() {
+		for(int i = 0; i < lanes; i += SPECIES.length()) {
+			DoubleVector phase = DoubleVector.fromArray(SPECIES, this.phase, i);
+			DoubleVector position = DoubleVector.fromArray(SPECIES, this.position, i);
+			DoubleVector destination = DoubleVector.fromArray(SPECIES, this.destination, i);
+			DoubleVector first = DoubleVector.fromArray(SPECIES, firstStop, i), last = DoubleVector.fromArray(SPECIES, lastStop, i);
+			VectorMask<Double> stopped = phase.compare(VectorOperators.EQ, STOPPED);
+			if(stopped.and(first.compare(VectorOperators.EQ, NONE)).allTrue()) continue; // Nothing for any of these cars to do
+
+			// Moving cars that are about to pass one of their stops make it their destination first
+			VectorMask<Double> up = phase.compare(VectorOperators.EQ, UP), down = phase.compare(VectorOperators.EQ, DOWN);
+			VectorMask<Double> passing = up.or(down).and(first.compare(VectorOperators.LT, destination).and(position.compare(VectorOperators.LT, first))
+					.or(last.compare(VectorOperators.GT, destination).and(position.compare(VectorOperators.GT, last))));
+			if(passing.anyTrue()) {
+				for(int j = pick(passing); j >= 0; j = next(j)) takeNearerStop(i + j);
+				destination = DoubleVector.fromArray(SPECIES, this.destination, i);
+			}
+
+			// Waiting cars let people out on the first update of each stop, then count down until the doors close
+			VectorMask<Double> waiting = phase.compare(VectorOperators.EQ, WAITING);
+			DoubleVector due = DoubleVector.fromArray(SPECIES, unloadDue, i);
+			VectorMask<Double> unloading = waiting.and(due.compare(VectorOperators.NE, 0));
+			if(unloading.anyTrue()) {
+				for(int j = pick(unloading); j >= 0; j = next(j)) unload(i + j);
+				due = due.blend(0, unloading);
+			}
+			DoubleVector remaining = DoubleVector.fromArray(SPECIES, waitRemaining, i);
+			remaining = remaining.blend(remaining.sub(waitStep), waiting);
+			DoubleVector nextPhase = phase.blend(STOPPED, waiting.and(remaining.compare(VectorOperators.LE, 0)));
+
+			// Accelerate to the halfway point, then decelerate, and snap to the floor on arrival
+			DoubleVector speed = DoubleVector.fromArray(SPECIES, this.speed, i), halfway = DoubleVector.fromArray(SPECIES, this.halfway, i);
+			VectorMask<Double> goingUp = up.and(position.compare(VectorOperators.LT, destination));
+			VectorMask<Double> goingDown = down.and(position.compare(VectorOperators.GT, destination));
+			VectorMask<Double> arrived = up.and(position.compare(VectorOperators.GE, destination)).or(down.and(position.compare(VectorOperators.LE, destination)));
+			VectorMask<Double> accelerating = goingUp.and(position.compare(VectorOperators.LT, halfway)).or(goingDown.and(position.compare(VectorOperators.GT, halfway)));
+			DoubleVector slower = speed.sub(acceleration);
+			VectorMask<Double> braking = goingUp.and(position.compare(VectorOperators.GE, halfway)).or(goingDown.and(position.compare(VectorOperators.LE, halfway)))
+					.and(slower.compare(VectorOperators.GT, minSpeed));
+			speed = speed.blend(speed.add(acceleration), accelerating).blend(slower, braking);
+			position = position.blend(position.add(speed), goingUp).blend(position.sub(speed), goingDown);
+			position = position.blend(destination, arrived);
+			speed = speed.blend(0, arrived);
+			nextPhase = nextPhase.blend(WAITING, arrived);
+			remaining = remaining.blend(waitTime, arrived);
+			due = due.blend(1, arrived);
+
+			nextPhase.intoArray(this.phase, i);
+			position.intoArray(this.position, i);
+			speed.intoArray(this.speed, i);
+			remaining.intoArray(waitRemaining, i);
+			due.intoArray(unloadDue, i);
+
+			// Stopped cars with somewhere to go pick their next destination, without moving until the next update
+			VectorMask<Double> leaving = stopped.and(first.compare(VectorOperators.LT, NONE));
+			if(leaving.anyTrue()) {
+				for(int j = pick(leaving); j >= 0; j = next(j)) leave(i + j);
+			}
+		}
+	}
+
+	/**
+	 * Mark the lanes a mask selects in picked, and get the first, or -1 if none.
+	 */
+	private int pick(VectorMask<Double> m) {
+		DoubleVector.zero(SPECIES).blend(1, m).intoArray(picked, 0);
+		return next(-1);
+	}
+
+	/**
+	 * Get the next lane marked in picked after j, or -1 if none.
+	 */
+	private int next(int j) {
+		while(++ j < picked.length) if(picked[j] != 0) return j;
+		return -1;
+	}
+
+	/**
+	 * The check for intermediate destinations in Elevator.update, for one lane.
+	 */
+	private void takeNearerStop(int i) {
+		if(firstStop[i] < destination[i] && position[i] < firstStop[i]) {
+			int previous = (int)destination[i];
+			destination[i] = removeStop(i, (int)firstStop[i]);
+			goTo(i, previous);
+		}
+		if(lastStop[i] > destination[i] && position[i] > lastStop[i]) {
+			int previous = (int)destination[i];
+			destination[i] = removeStop(i, (int)lastStop[i]);
+			goTo(i, previous);
+		}
+	}
+
+	/**
+	 * Elevator.getNextDestination, for one lane.
+	 */
+	private void leave(int i) {
+		int first = (int)firstStop[i], last = (int)lastStop[i];
+		int next;
+		if(first > position[i]) {
+			phase[i] = UP;
+			next = removeStop(i, first);
+		}
+		else if(last < position[i]) {
+			phase[i] = DOWN;
+			next = removeStop(i, last);
+		}
+		else if(first < position[i] && last > position[i]) {
+			if(carRandom[i].nextDouble() < .5) {
+				phase[i] = DOWN;
+				next = removeStop(i, first);
+			}
+			else {
+				phase[i] = UP;
+				next = removeStop(i, last);
+			}
+		}
+		else if(first == destination[i] || last == destination[i]) {
+			phase[i] = WAITING;
+			waitRemaining[i] = waitTime;
+			unloadDue[i] = 1;
+			next = removeStop(i, first == destination[i] ? first : last);
+		}
+		else throw new RuntimeException("Error: Next destination not found!");
+		destination[i] = next;
+		halfway[i] = (next + position[i]) / 2;
+	}
+
+	private void goTo(int i, int floor) {
+		setStops(i, stops[i] | 1L << floor);
+	}
+
+	private int removeStop(int i, int floor) {
+		setStops(i, stops[i] & ~(1L << floor));
+		return floor;
+	}
+
+	private void setStops(int i, long s) {
+		stops[i] = s;
+		firstStop[i] = s == 0 ? NONE : Long.numberOfTrailingZeros(s);
+		lastStop[i] = s == 0 ? -NONE : 63 - Long.numberOfLeadingZeros(s);
+	}
+
+	/**
+	 * Elevator.getDirection, for one lane.
+	 * @return UP, DOWN or -1 for none
+	 */
+	private double getDirection(int i) {
+		if(phase[i] == WAITING) {
+			if(stops[i] == 0) return -1;
+			return firstStop[i] > position[i] ? UP : DOWN;
+		}
+		if(phase[i] == STOPPED) return -1;
+		return phase[i];
+	}
+
+	/**
+	 * Let out the people whose destination is the car's floor, and count their trips.
+	 */
+	private void unload(int i) {
+		int kept = i * capacity;
+		for(int j = i * capacity; j < i * capacity + numOccupants[i]; j ++) {
+			if(occupantDestinations[j] == position[i]) statistics[i / cars].getTripTimes().add((long)time - occupantTimes[j]);
+			else {
+				occupantDestinations[kept] = occupantDestinations[j];
+				occupantTimes[kept ++] = occupantTimes[j];
+			}
+		}
+		numOccupants[i] = kept - i * capacity;
+	}
+
+	/**
+	 * SimulationBase.load, for one lane.
+	 */
+	private void load(int r, int i) {
+		int floor = (int)position[i];
+		Queue q = queues[r * floors + floor];
+		if(q.size == 0 || numOccupants[i] >= capacity) return;
+		int j = 0;
+		while(j < q.size && numOccupants[i] < capacity) {
+			int d = q.destinations[j];
+			double direction = getDirection(i);
+			if(direction < 0 || (d > floor && direction == UP) || (d < floor && direction == DOWN)) {
+				int slot = i * capacity + numOccupants[i] ++;
+				occupantDestinations[slot] = d;
+				occupantTimes[slot] = q.times[j];
+				statistics[r].getWaitTimes().add((long)time - q.times[j]);
+				q.remove(j);
+				numWaiting[r] --;
+				goTo(i, d);
+			}
+			else j ++;
+		}
+	}
+
+	/**
+	 * Spawner.spawn, for one replica.
+	 */
+	private void spawn(int r) {
+		SimulationRandom random = this.random[r];
+		while(random.nextDouble() < spawnProbability) {
+			int startingFloor = 0;
+			if(random.nextDouble() < .5) startingFloor = (int)(random.nextDouble() * (floors - 1)) + 1;
+			int destination = 0;
+			if(startingFloor == 0) destination = (int)(random.nextDouble() * (floors - 1)) + 1;
+			do {
+				queues[r * floors + startingFloor].add(destination, (long)time);
+				numWaiting[r] ++;
+				statistics[r].arrived(new Person(startingFloor, destination, (long)time));
+			}
+			while(random.nextDouble() < groupMemberProbability);
+			callBestElevator(r, startingFloor, startingFloor < destination ? UP : DOWN);
+		}
+	}
+
+	/**
+	 * The heuristic Scheduler.getBestElevator(floor, direction), for one replica.
+	 */
+	private void callBestElevator(int r, int floor, double direction) {
+
+		// An elevator with no further destinations
+		int best = -1;
+		for(int i = r * cars; i < (r + 1) * cars; i ++) {
+			if(getDirection(i) < 0 && (best < 0 || Math.abs(position[i] - floor) < Math.abs(position[best] - floor))) best = i;
+		}
+		if(best < 0) {
+
+			// An elevator moving in the right direction
+			for(int i = r * cars; i < (r + 1) * cars; i ++) {
+				double d = getDirection(i);
+				boolean candidate = (direction != DOWN && floor > position[i] && d == UP) || (direction != UP && floor < position[i] && d == DOWN);
+				if(candidate && (best < 0 || Math.abs(position[i] - floor) < Math.abs(position[best] - floor))) best = i;
+			}
+		}
+		if(best >= 0) goTo(best, floor);
+	}
+
+	/**
+	 * The people waiting on one floor of one replica, in arrival order.
+	 */
+	private static class Queue {
+
+		private int[] destinations = new int[16];
+		private long[] times = new long[16];
+		private int size;
+
+		public void add(int destination, long time) {
+			if(size == destinations.length) {
+				destinations = Arrays.copyOf(destinations, 2 * size);
+				times = Arrays.copyOf(times, 2 * size);
+			}
+			destinations[size] = destination;
+			times[size ++] = time;
+		}
+
+		public void remove(int i) {
+			System.arraycopy(destinations, i + 1, destinations, i, size - i - 1);
+			System.arraycopy(times, i + 1, times, i, size - i - 1);
+			size --;
+		}
+
+	}
+
+	/**
+	 * Run the replicas on this engine and one after another on the scalar engine, compare their statistics, and print both times.
+	 */
+	public static void main(String[] args) throws Exception {
+		if(args.length < 1) {
+			System.err.println("Usage: java --add-modules jdk.incubator.vector VectorReplicas <scenario file> [replicas] [key=value ...]");
+			System.exit(2);
+		}
+		Scenario scenario = Scenario.load(new File(args[0]));
+		int replicas = 64;
+		for(int i = 1; i < args.length; i ++) {
+			if(args[i].contains("=")) scenario.set(args[i]);
+			else replicas = Integer.parseInt(args[i]);
+		}
+
+		// Let the JIT compile both engines before timing either
+		Scenario warm = scenario.copy();
+		warm.set("warmup", "0");
+		warm.set("duration", "600");
+		run(warm, replicas);
+		warm.run(null);
+
+		long start = System.nanoTime();
+		Statistics[] vector = run(scenario, replicas);
+		double vectorMs = (System.nanoTime() - start) / 1e6;
+
+		start = System.nanoTime();
+		boolean same = true;
+		long seed = scenario.getLong("seed");
+		for(int r = 0; r < replicas; r ++) {
+			Scenario replica = scenario.copy();
+			replica.set("seed", String.valueOf(seed + r));
+			Statistics s = replica.run(null);
+			same &= s.getNumberArrived() == vector[r].getNumberArrived()
+					&& s.getNumberBoarded() == vector[r].getNumberBoarded() && s.getTotalWaitTime() == vector[r].getTotalWaitTime()
+					&& s.getNumberDelivered() == vector[r].getNumberDelivered() && s.getTripTimes().getTotal() == vector[r].getTripTimes().getTotal()
+					&& s.getMaxWaitTime() == vector[r].getMaxWaitTime() && s.getWaitTimePercentile(.95) == vector[r].getWaitTimePercentile(.95);
+		}
+		double scalarMs = (System.nanoTime() - start) / 1e6;
+
+		System.out.println(replicas + " replicas, " + SPECIES.length() + " lanes per vector");
+		System.out.printf("scalar: %.0f ms (%.1f replicas per second)%n", scalarMs, replicas * 1000 / scalarMs);
+		System.out.printf("vector: %.0f ms (%.1f replicas per second), %.2fx%n", vectorMs, replicas * 1000 / vectorMs, scalarMs / vectorMs);
+		System.out.println(same ? "identical statistics" : "STATISTICS DIFFER");
+		if(!same) System.exit(1);
+	}
+
+}